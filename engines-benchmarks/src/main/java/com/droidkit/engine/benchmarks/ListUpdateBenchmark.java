@@ -0,0 +1,134 @@
+package com.droidkit.engine.benchmarks;
+
+import com.droidkit.engine._internal.util.ConcurrentLongHashMap;
+import com.droidkit.engine._internal.util.PersistentSortedList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Update and removal of items by id the same way ListEngine does it:
+ * value map, id to sort key map and persistent sorted list with position lookup for change set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListUpdateBenchmark {
+
+    @Param({"1000", "10000", "200000"})
+    public int size;
+
+    private ConcurrentLongHashMap<Item> inMemoryMap;
+
+    private HashMap<Long, Long> sortKeys;
+
+    private PersistentSortedList<Object> list;
+
+    private long[] randomIds;
+
+    private int next;
+
+    private long maxSortKey;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1);
+        inMemoryMap = new ConcurrentLongHashMap<Item>();
+        sortKeys = new HashMap<Long, Long>();
+
+        final long[] keys = new long[size];
+        final long[] ids = new long[size];
+        final Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            final Item item = new Item(i, i * 2);
+            keys[i] = item.sortKey;
+            ids[i] = item.id;
+            values[i] = item;
+            inMemoryMap.put(item.id, item);
+            sortKeys.put(item.id, item.sortKey);
+        }
+        list = PersistentSortedList.fromSorted(keys, ids, values, size);
+        maxSortKey = size * 2;
+
+        randomIds = new long[1024];
+        for (int i = 0; i < randomIds.length; i++) {
+            randomIds[i] = random.nextInt(size);
+        }
+    }
+
+    /**
+     * New value of item with the same sort key
+     */
+    @Benchmark
+    public int updateInPlace() {
+        final long id = randomIds[next++ & (randomIds.length - 1)];
+        final Item item = new Item(id, sortKeys.get(id));
+        return update(item);
+    }
+
+    /**
+     * New value of item moved to the top of list, e.g. chat with new message
+     */
+    @Benchmark
+    public int updateMoveToTop() {
+        final long id = randomIds[next++ & (randomIds.length - 1)];
+        final Item item = new Item(id, ++maxSortKey);
+        return update(item);
+    }
+
+    /**
+     * Removal of item, item is inserted back after that to keep size of list
+     */
+    @Benchmark
+    public int removeById() {
+        final long id = randomIds[next++ & (randomIds.length - 1)];
+        final Item item = inMemoryMap.remove(id);
+        final Long sortKey = sortKeys.remove(id);
+        final int index = list.indexOf(sortKey, id);
+        list = list.remove(sortKey, id);
+
+        inMemoryMap.put(id, item);
+        sortKeys.put(id, sortKey);
+        list = list.put(sortKey, id, item);
+        return index;
+    }
+
+    private int update(Item item) {
+        inMemoryMap.put(item.id, item);
+        final Long oldSortKey = sortKeys.put(item.id, item.sortKey);
+        if (oldSortKey == item.sortKey) {
+            list = list.put(item.sortKey, item.id, item);
+            return list.indexOf(item.sortKey, item.id);
+        } else {
+            final int from = list.indexOf(oldSortKey, item.id);
+            list = list.remove(oldSortKey, item.id).put(item.sortKey, item.id, item);
+            return from + list.indexOf(item.sortKey, item.id);
+        }
+    }
+
+    static class Item {
+        final long id;
+        final long sortKey;
+
+        Item(long id, long sortKey) {
+            this.id = id;
+            this.sortKey = sortKey;
+        }
+    }
+}
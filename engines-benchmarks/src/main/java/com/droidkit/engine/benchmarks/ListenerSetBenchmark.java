@@ -0,0 +1,112 @@
+package com.droidkit.engine.benchmarks;
+
+import com.droidkit.engine._internal.util.WeakEqualReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set of WeakEqualReference-wrapped listeners as it is kept by NotificationCenter:
+ * lookup of listeners of one event by iteration, registration and removal of listener.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerSetBenchmark {
+
+    /**
+     * Number of different event ids, listeners are spread between them
+     */
+    private static final int EVENT_IDS = 10;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int listeners;
+
+    private Set<WeakEqualReference<Container>> set;
+
+    private Container extra;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        set = Collections.newSetFromMap(new ConcurrentHashMap<WeakEqualReference<Container>, Boolean>());
+        for (int i = 0; i < listeners; i++) {
+            set.add(new WeakEqualReference<Container>(new Container(1, i % EVENT_IDS, new Object())));
+        }
+        extra = new Container(1, 0, new Object());
+    }
+
+    /**
+     * Iteration of whole set selecting listeners of one event, as fireEvent does
+     */
+    @Benchmark
+    public int iterate() {
+        final int eventId = next++ % EVENT_IDS;
+        int matched = 0;
+        final Iterator<WeakEqualReference<Container>> it = set.iterator();
+        while (it.hasNext()) {
+            final Container container = it.next().get();
+            if (container == null) {
+                it.remove();
+            } else if (container.eventType == 1 && container.eventId == eventId) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        set.add(new WeakEqualReference<Container>(extra));
+        return set.remove(new WeakEqualReference<Container>(extra));
+    }
+
+    static class Container {
+        final int eventType;
+        final int eventId;
+        final Object listener;
+
+        Container(int eventType, int eventId, Object listener) {
+            this.eventType = eventType;
+            this.eventId = eventId;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Container that = (Container) o;
+
+            return eventId == that.eventId && eventType == that.eventType && listener.equals(that.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = eventType;
+            result = 31 * result + eventId;
+            result = 31 * result + listener.hashCode();
+            return result;
+        }
+    }
+}
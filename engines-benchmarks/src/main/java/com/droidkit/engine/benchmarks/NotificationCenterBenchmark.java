@@ -0,0 +1,96 @@
+package com.droidkit.engine.benchmarks;
+
+import com.droidkit.engine.event.NotificationCenter;
+import com.droidkit.engine.event.NotificationListener;
+import com.droidkit.engine.platform.JvmPlatform;
+import com.droidkit.engine.platform.Platform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NotificationCenter.fireEvent with listeners spread between several event ids.
+ * Benchmark thread is treated as main thread, so listeners are called synchronously
+ * and only the cost of fireEvent itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationCenterBenchmark {
+
+    private static final int EVENT_TYPE = 1000;
+
+    /**
+     * Number of different event ids, listeners are spread between them
+     */
+    private static final int EVENT_IDS = 10;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int listeners;
+
+    private NotificationCenter notificationCenter;
+
+    private CountingListener[] registered;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        Platform.set(new JvmPlatform() {
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+        notificationCenter = NotificationCenter.getInstance();
+        registered = new CountingListener[listeners];
+        for (int i = 0; i < listeners; i++) {
+            registered[i] = new CountingListener();
+            notificationCenter.addListener(EVENT_TYPE, i % EVENT_IDS, registered[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (CountingListener listener : registered) {
+            notificationCenter.removeListener(listener);
+        }
+    }
+
+    @Benchmark
+    public void fireEvent() {
+        notificationCenter.fireEvent(EVENT_TYPE, next++ % EVENT_IDS);
+    }
+
+    /**
+     * Event without listeners: pure cost of iteration over listeners
+     */
+    @Benchmark
+    public void fireEventWithoutListeners() {
+        notificationCenter.fireEvent(EVENT_TYPE, EVENT_IDS);
+    }
+
+    static class CountingListener implements NotificationListener {
+        long count;
+
+        @Override
+        public void onNotification(int eventType, int eventId, Object[] eventArgs) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.droidkit.engine.benchmarks;
+
+import com.droidkit.engine._internal.util.SortedArrayList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insertion to SortedArrayList: single items to random position and to the end,
+ * merging of sorted and unsorted batches of the same size as list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedArrayListBenchmark {
+
+    private static final Comparator<Item> COMPARATOR = new Comparator<Item>() {
+        @Override
+        public int compare(Item lhs, Item rhs) {
+            if (lhs.sortKey != rhs.sortKey) {
+                return lhs.sortKey < rhs.sortKey ? -1 : 1;
+            }
+            if (lhs.id != rhs.id) {
+                return lhs.id < rhs.id ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    @Param({"1000", "10000", "200000"})
+    public int size;
+
+    private SortedArrayList<Item> list;
+
+    private Item[] randomItems;
+
+    private int next;
+
+    private long maxSortKey;
+
+    private ArrayList<Item> sortedBatch;
+
+    private ArrayList<Item> interleavedBatch;
+
+    private ArrayList<Item> shuffledBatch;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1);
+
+        list = new SortedArrayList<Item>(COMPARATOR);
+        sortedBatch = new ArrayList<Item>(size);
+        interleavedBatch = new ArrayList<Item>(size);
+        for (int i = 0; i < size; i++) {
+            sortedBatch.add(new Item(i, i * 2));
+            interleavedBatch.add(new Item(size + i, i * 2 + 1));
+        }
+        list.addAll(sortedBatch);
+        maxSortKey = size * 2;
+
+        shuffledBatch = new ArrayList<Item>(interleavedBatch);
+        Collections.shuffle(shuffledBatch, random);
+
+        randomItems = new Item[1024];
+        for (int i = 0; i < randomItems.length; i++) {
+            randomItems[i] = new Item(size * 2 + i, random.nextInt(size * 2));
+        }
+    }
+
+    /**
+     * Insertion to random position, item is removed after that to keep size of list
+     */
+    @Benchmark
+    public int addRandom() {
+        final Item item = randomItems[next++ & (randomItems.length - 1)];
+        list.add(item);
+        list.remove(list.lowerBound(item));
+        return list.size();
+    }
+
+    /**
+     * Insertion of new maximum, the most common case of growing list
+     */
+    @Benchmark
+    public int addLast() {
+        final Item item = new Item(-1, ++maxSortKey);
+        list.add(item);
+        list.remove(list.size() - 1);
+        return list.size();
+    }
+
+    @Benchmark
+    public SortedArrayList<Item> addAllSorted() {
+        final SortedArrayList<Item> res = new SortedArrayList<Item>(COMPARATOR);
+        res.addAll(sortedBatch);
+        return res;
+    }
+
+    /**
+     * Merge of sorted batch with items between items of list
+     */
+    @Benchmark
+    public SortedArrayList<Item> addAllMerge() {
+        final SortedArrayList<Item> res = new SortedArrayList<Item>(COMPARATOR);
+        res.addAll(sortedBatch);
+        res.addAll(interleavedBatch);
+        return res;
+    }
+
+    /**
+     * Merge of batch that has to be sorted first
+     */
+    @Benchmark
+    public SortedArrayList<Item> addAllShuffled() {
+        final SortedArrayList<Item> res = new SortedArrayList<Item>(COMPARATOR);
+        res.addAll(sortedBatch);
+        res.addAll(shuffledBatch);
+        return res;
+    }
+
+    static class Item {
+        final long id;
+        final long sortKey;
+
+        Item(long id, long sortKey) {
+            this.id = id;
+            this.sortKey = sortKey;
+        }
+    }
+}
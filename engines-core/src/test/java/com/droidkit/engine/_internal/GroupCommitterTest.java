@@ -0,0 +1,229 @@
+package com.droidkit.engine._internal;
+
+import com.droidkit.actors.ActorCreator;
+import com.droidkit.actors.ActorRef;
+import com.droidkit.actors.ActorSelection;
+import com.droidkit.actors.ActorSystem;
+import com.droidkit.actors.Props;
+import com.droidkit.engine.Engines;
+import com.droidkit.engine.common.CommitHandle;
+import com.droidkit.engine.common.TransactionalStorage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GroupCommitterTest {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    private final CountDownLatch dbThreadReleased = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        Engines.init();
+    }
+
+    @Test
+    public void testWritesOfOneScopeShareTransaction() throws InterruptedException {
+        final Database db = new Database();
+        final GroupCommitter first = committer(db, db);
+        final GroupCommitter second = committer(db, db);
+        blockDbThread(first);
+
+        final ArrayList<CommitHandle> handles = new ArrayList<CommitHandle>();
+        handles.add(first.submit(db.write("a")));
+        handles.add(second.submit(db.write("b")));
+        handles.add(first.submit(db.write("c")));
+        assertTrue(first.hasUncommitted());
+        assertEquals(2, first.getUncommittedCount());
+        assertEquals(1, second.getUncommittedCount());
+
+        dbThreadReleased.countDown();
+        for (CommitHandle handle : handles) {
+            assertTrue(handle.await(5000));
+            assertTrue(handle.isCommitted());
+        }
+        assertEquals(1, db.transactions);
+        assertEquals(Arrays.asList("a", "b", "c"), db.rows);
+        assertFalse(first.hasUncommitted());
+        assertFalse(second.hasUncommitted());
+    }
+
+    @Test
+    public void testStoragesWithoutScopeUseOwnTransactions() throws InterruptedException {
+        final Database db = new Database();
+        final GroupCommitter first = committer(new Object(), db);
+        final GroupCommitter second = committer(new Object(), db);
+        blockDbThread(first);
+
+        final CommitHandle a = first.submit(db.write("a"));
+        final CommitHandle b = second.submit(db.write("b"));
+        dbThreadReleased.countDown();
+
+        assertTrue(a.await(5000));
+        assertTrue(b.await(5000));
+        assertEquals(2, db.transactions);
+    }
+
+    @Test
+    public void testWritesToNonTransactionalStorageAreNotGrouped() throws InterruptedException {
+        final Database db = new Database();
+        final GroupCommitter committer = committer(new Object(), db);
+        blockDbThread(committer);
+
+        final CommitHandle a = committer.submit(db.write("a"));
+        final CommitHandle b = committer.submit(db.write("b"));
+        final CommitHandle c = committer.submit(db.write("c"));
+        dbThreadReleased.countDown();
+
+        assertTrue(a.await(5000));
+        assertTrue(b.await(5000));
+        assertTrue(c.await(5000));
+        assertEquals(3, db.transactions);
+        assertEquals(Arrays.asList("a", "b", "c"), db.rows);
+    }
+
+    @Test
+    public void testFailedGroupIsRetriedOneByOne() throws InterruptedException {
+        final Database db = new Database();
+        final GroupCommitter committer = committer(db, db);
+        blockDbThread(committer);
+
+        final CommitHandle a = committer.submit(db.write("a"));
+        final IllegalStateException error = new IllegalStateException("broken");
+        final CommitHandle broken = committer.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw error;
+            }
+        });
+        final CommitHandle c = committer.submit(db.write("c"));
+        dbThreadReleased.countDown();
+
+        assertTrue(a.await(5000));
+        assertTrue(c.await(5000));
+        try {
+            broken.await(5000);
+        } catch (RuntimeException e) {
+            assertSame(error, e.getCause());
+        }
+        assertTrue(broken.isDone());
+        assertFalse(broken.isCommitted());
+        assertSame(error, broken.getError());
+        assertEquals(Arrays.asList("a", "c"), db.rows);
+        assertFalse(committer.hasUncommitted());
+    }
+
+    @Test
+    public void testReadRunsAfterSubmittedWrites() throws InterruptedException {
+        final Database db = new Database();
+        final GroupCommitter committer = committer(db, db);
+        final ActorRef reader = actor(Engines.DB_READ_DISPATCHER);
+        blockDbThread(committer);
+
+        committer.submit(db.write("a"));
+        final CountDownLatch isRead = new CountDownLatch(1);
+        final ArrayList<String> seen = new ArrayList<String>();
+        committer.read(reader, new Runnable() {
+            @Override
+            public void run() {
+                synchronized (db) {
+                    seen.addAll(db.rows);
+                }
+                isRead.countDown();
+            }
+        });
+        dbThreadReleased.countDown();
+
+        assertTrue(isRead.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a"), seen);
+    }
+
+    private GroupCommitter committer(Object storage, final Database db) {
+        return new GroupCommitter(actor(Engines.DB_WRITE_DISPATCHER), storage) {
+            @Override
+            protected void runInTransaction(Runnable runnable) {
+                db.runInTransaction(runnable);
+            }
+        };
+    }
+
+    /**
+     * Hold single db thread, so all writes submitted till release are queued
+     */
+    private void blockDbThread(GroupCommitter committer) {
+        committer.getDbActor().send(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dbThreadReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private static ActorRef actor(String dispatcher) {
+        return ActorSystem.system().actorOf(new ActorSelection(Props.create(RunnableActor.class,
+                new ActorCreator<RunnableActor>() {
+                    @Override
+                    public RunnableActor create() {
+                        return new RunnableActor();
+                    }
+                }).changeDispatcher(dispatcher), "group_committer_test_" + NEXT_ID.getAndIncrement()));
+    }
+
+    /**
+     * Storage shared by committers: rows written in transaction are visible only after it succeeds
+     */
+    private static class Database implements TransactionalStorage, TransactionScope {
+        private final ArrayList<String> rows = new ArrayList<String>();
+        private final ArrayList<String> uncommitted = new ArrayList<String>();
+        private int depth = 0;
+        private int transactions = 0;
+
+        @Override
+        public Object getTransactionScope() {
+            return this;
+        }
+
+        Runnable write(final String row) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    uncommitted.add(row);
+                }
+            };
+        }
+
+        @Override
+        public synchronized void runInTransaction(Runnable runnable) {
+            depth++;
+            boolean isSuccessful = false;
+            try {
+                runnable.run();
+                isSuccessful = true;
+            } finally {
+                if (--depth == 0) {
+                    if (isSuccessful) {
+                        rows.addAll(uncommitted);
+                        transactions++;
+                    }
+                    uncommitted.clear();
+                }
+            }
+        }
+    }
+}
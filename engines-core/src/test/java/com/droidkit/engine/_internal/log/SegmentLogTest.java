@@ -0,0 +1,256 @@
+package com.droidkit.engine._internal.log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SegmentLogTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("segment_log", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRecoveryAfterReopen() {
+        final SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 100; i++) {
+            log.put(i, 100 - i, bytes("v" + i));
+        }
+        log.remove(3);
+        log.put(5, 5, bytes("updated"));
+
+        final SegmentLog reopened = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(99, reopened.size());
+        assertNull(reopened.get(3));
+        assertArrayEquals(bytes("updated"), reopened.get(5).getBytes());
+        assertArrayEquals(bytes("v7"), reopened.get(7).getBytes());
+
+        final ArrayList<SegmentLog.Item> all = reopened.all();
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getSortKey() <= all.get(i).getSortKey());
+        }
+    }
+
+    @Test
+    public void testClearIsRecovered() {
+        final SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE);
+        log.put(1, 1, bytes("a"));
+        log.clear();
+        log.put(2, 2, bytes("b"));
+
+        final SegmentLog reopened = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get(1));
+        assertArrayEquals(bytes("b"), reopened.get(2).getBytes());
+    }
+
+    @Test
+    public void testTornTransactionTailIsDropped() throws IOException {
+        final SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE);
+        log.put(1, 1, bytes("committed"));
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                log.put(2, 2, bytes("torn"));
+                log.put(1, 1, bytes("torn"));
+            }
+        });
+
+        // Crash before commit record reached disk
+        final long commit = lastRecordOffset(headFile());
+        erase(headFile(), commit, 25);
+
+        final SegmentLog reopened = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get(2));
+        assertArrayEquals(bytes("committed"), reopened.get(1).getBytes());
+
+        // Erased tail is reused by new records
+        reopened.put(3, 3, bytes("after"));
+        final SegmentLog again = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(2, again.size());
+        assertArrayEquals(bytes("after"), again.get(3).getBytes());
+    }
+
+    @Test
+    public void testCorruptedRecordIsRejected() throws IOException {
+        final SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE);
+        log.put(1, 1, bytes("first"));
+        log.put(2, 2, bytes("second"));
+
+        // Flip byte of payload of the last record
+        final File head = headFile();
+        final long offset = lastRecordOffset(head) + 25;
+        final RandomAccessFile file = new RandomAccessFile(head, "rw");
+        try {
+            file.seek(offset);
+            final int b = file.read();
+            file.seek(offset);
+            file.write(b ^ 0xFF);
+        } finally {
+            file.close();
+        }
+
+        final SegmentLog reopened = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get(2));
+        assertArrayEquals(bytes("first"), reopened.get(1).getBytes());
+    }
+
+    @Test
+    public void testRollback() {
+        final SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 20; i++) {
+            log.put(i, i, bytes("v" + i));
+        }
+        try {
+            log.runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    log.put(1, 100, bytes("changed"));
+                    log.remove(2);
+                    log.clear();
+                    // Spans several segments
+                    for (int i = 0; i < 50; i++) {
+                        log.put(1000 + i, i, new byte[64]);
+                    }
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        assertEquals(20, log.size());
+        assertArrayEquals(bytes("v1"), log.get(1).getBytes());
+        assertArrayEquals(bytes("v2"), log.get(2).getBytes());
+        assertNull(log.get(1000));
+        final ArrayList<SegmentLog.Item> all = log.all();
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i, all.get(i).getId());
+        }
+
+        log.put(20, 20, bytes("v20"));
+        final SegmentLog reopened = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(21, reopened.size());
+        assertArrayEquals(bytes("v1"), reopened.get(1).getBytes());
+        assertNull(reopened.get(1000));
+    }
+
+    @Test
+    public void testCompaction() {
+        final SegmentLog log = new SegmentLog(directory, SEGMENT_SIZE);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 20; i++) {
+                log.put(i, i, bytes("v" + round + "_" + i));
+            }
+        }
+        log.compact();
+
+        final ArrayList<SegmentLog.Item> all = log.all();
+        assertEquals(20, all.size());
+        for (SegmentLog.Item item : all) {
+            assertArrayEquals(bytes("v19_" + item.getId()), item.getBytes());
+        }
+        // Without compaction records take 13 segments
+        assertTrue(segmentFiles().length < 8);
+
+        final SegmentLog reopened = new SegmentLog(directory, SEGMENT_SIZE);
+        assertEquals(20, reopened.size());
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(bytes("v19_" + i), reopened.get(i).getBytes());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private File[] segmentFiles() {
+        final File[] files = directory.listFiles();
+        Arrays.sort(files);
+        return files;
+    }
+
+    private File headFile() {
+        File head = null;
+        long headSeq = -1;
+        for (File file : segmentFiles()) {
+            final String name = file.getName();
+            final long seq = Long.parseLong(name.substring("segment_".length(), name.length() - ".log".length()));
+            if (seq > headSeq) {
+                headSeq = seq;
+                head = file;
+            }
+        }
+        return head;
+    }
+
+    /**
+     * Offset of the last record found by walking records from segment header
+     */
+    private static long lastRecordOffset(File segment) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(segment, "r");
+        try {
+            long last = -1;
+            long pos = 8;
+            while (pos + 25 <= file.length()) {
+                file.seek(pos + 4);
+                final int length = file.readInt();
+                if (file.readByte() == 0) {
+                    break;
+                }
+                last = pos;
+                pos += 25 + length;
+            }
+            return last;
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void erase(File segment, long offset, int length) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.seek(offset);
+            file.write(new byte[length]);
+        } finally {
+            file.close();
+        }
+    }
+}
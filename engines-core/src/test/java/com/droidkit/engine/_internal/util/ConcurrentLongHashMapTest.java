@@ -0,0 +1,127 @@
+package com.droidkit.engine._internal.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLongHashMapTest {
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        // One small segment: long probe chains, many backward shifts and several rehashes
+        final ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<String>(16, 1);
+        final HashMap<Long, String> expected = new HashMap<Long, String>();
+        final Random random = new Random(5);
+
+        for (int i = 0; i < 100000; i++) {
+            final long key = random.nextInt(i < 50000 ? 40 : 2000) - 10;
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 1: {
+                    final String value = expected.get(key);
+                    if (value != null && random.nextBoolean()) {
+                        assertTrue(map.remove(key, value));
+                        expected.remove(key);
+                    } else {
+                        assertFalse(map.remove(key, "missing"));
+                    }
+                    break;
+                }
+                default:
+                    assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                    break;
+            }
+            if (i % 1000 == 0) {
+                assertMatches(expected, map);
+            }
+        }
+        assertMatches(expected, map);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    public void testRemoveKeepsCollidingKeysReachable() {
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(16, 1);
+        final ArrayList<Long> keys = new ArrayList<Long>();
+        for (long key = 0; key < 10; key++) {
+            keys.add(key);
+            map.put(key, key);
+        }
+        Collections.shuffle(keys, new Random(1));
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(keys.get(i), map.remove(keys.get(i)));
+            for (int j = i + 1; j < keys.size(); j++) {
+                assertEquals(keys.get(j), map.get(keys.get(j)));
+            }
+        }
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testLockFreeReadsDuringWrites() throws InterruptedException {
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(16, 1);
+        // Stable keys are never removed, other keys around them are moved by removals and rehashes
+        for (long key = 0; key < 64; key += 2) {
+            map.put(key, key);
+        }
+        final AtomicBoolean isRunning = new AtomicBoolean(true);
+        final AtomicInteger missed = new AtomicInteger();
+
+        final Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread() {
+                @Override
+                public void run() {
+                    while (isRunning.get()) {
+                        for (long key = 0; key < 64; key += 2) {
+                            final Long value = map.get(key);
+                            if (value == null || value != key) {
+                                missed.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+            readers[r].start();
+        }
+
+        final Random random = new Random(9);
+        for (int i = 0; i < 200000; i++) {
+            final long key = random.nextInt(5000) * 2 + 1;
+            if (random.nextBoolean()) {
+                map.put(key, key);
+            } else {
+                map.remove(key);
+            }
+        }
+        isRunning.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(0, missed.get());
+    }
+
+    private static void assertMatches(HashMap<Long, String> expected, ConcurrentLongHashMap<String> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        for (Map.Entry<Long, String> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+    }
+}
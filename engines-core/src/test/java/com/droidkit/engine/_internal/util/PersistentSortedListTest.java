@@ -0,0 +1,168 @@
+package com.droidkit.engine._internal.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentSortedListTest {
+
+    private static final Comparator<long[]> ORDER = new Comparator<long[]>() {
+        @Override
+        public int compare(long[] lhs, long[] rhs) {
+            if (lhs[0] != rhs[0]) {
+                return lhs[0] < rhs[0] ? -1 : 1;
+            }
+            if (lhs[1] != rhs[1]) {
+                return lhs[1] < rhs[1] ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        final Random random = new Random(42);
+        final TreeMap<long[], String> expected = new TreeMap<long[], String>(ORDER);
+        PersistentSortedList<String> list = PersistentSortedList.empty();
+
+        for (int i = 0; i < 5000; i++) {
+            final long sortKey = random.nextInt(50);
+            final long id = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                list = list.remove(sortKey, id);
+                expected.remove(new long[]{sortKey, id});
+            } else {
+                list = list.put(sortKey, id, "v" + i);
+                expected.put(new long[]{sortKey, id}, "v" + i);
+            }
+            if (i % 500 == 0) {
+                assertMatches(expected, list);
+            }
+        }
+        assertMatches(expected, list);
+
+        for (int i = 0; i < 200; i++) {
+            final long sortKey = random.nextInt(52) - 1;
+            final long id = random.nextInt(202) - 1;
+            final long[] key = new long[]{sortKey, id};
+            assertEquals(expected.headMap(key).size(), list.rank(sortKey, id));
+            assertEquals(expected.containsKey(key) ? expected.headMap(key).size() : -1, list.indexOf(sortKey, id));
+            assertEquals(expected.headMap(new long[]{sortKey, Long.MIN_VALUE}).size(), list.lowerBound(sortKey));
+            assertEquals(expected.headMap(new long[]{sortKey, Long.MAX_VALUE}, true).size(), list.upperBound(sortKey));
+        }
+    }
+
+    @Test
+    public void testModificationsKeepOriginal() {
+        final PersistentSortedList<String> original = PersistentSortedList.<String>empty()
+                .put(1, 1, "a")
+                .put(2, 2, "b");
+        final PersistentSortedList<String> modified = original.put(0, 5, "c").remove(2, 2);
+
+        assertEquals(2, original.size());
+        assertEquals("a", original.get(0));
+        assertEquals("b", original.get(1));
+        assertEquals(2, modified.size());
+        assertEquals("c", modified.get(0));
+        assertEquals("a", modified.get(1));
+        assertSame(original, original.remove(3, 3));
+    }
+
+    @Test
+    public void testPutAll() {
+        final Random random = new Random(7);
+        final TreeMap<long[], String> expected = new TreeMap<long[], String>(ORDER);
+        PersistentSortedList<String> list = PersistentSortedList.empty();
+
+        // Small and big batches take different paths
+        for (int batch : new int[]{1, 3, 500, 2, 1000}) {
+            final TreeMap<long[], String> items = new TreeMap<long[], String>(ORDER);
+            for (int i = 0; i < batch; i++) {
+                items.put(new long[]{random.nextInt(100), random.nextInt(100)}, "b" + batch + "_" + i);
+            }
+            final long[] sortKeys = new long[items.size()];
+            final long[] ids = new long[items.size()];
+            final Object[] values = new Object[items.size()];
+            int count = 0;
+            for (Map.Entry<long[], String> e : items.entrySet()) {
+                sortKeys[count] = e.getKey()[0];
+                ids[count] = e.getKey()[1];
+                values[count++] = e.getValue();
+            }
+            list = list.putAll(sortKeys, ids, values, count);
+            expected.putAll(items);
+            assertMatches(expected, list);
+        }
+    }
+
+    @Test
+    public void testClearValues() {
+        PersistentSortedList<String> list = PersistentSortedList.empty();
+        for (int i = 0; i < 100; i++) {
+            list = list.put(i, i, "v" + i);
+        }
+        final ArrayList<String> evicted = new ArrayList<String>();
+        final PersistentSortedList<String> cleared = list.clearValues(10, 20, evicted);
+
+        assertEquals(100, cleared.size());
+        assertEquals(90, cleared.valuesCount());
+        assertEquals(10, evicted.size());
+        assertNull(cleared.get(15));
+        assertEquals(15, cleared.getId(15));
+        assertEquals("v9", cleared.get(9));
+        assertEquals("v20", cleared.get(20));
+        assertEquals(100, list.valuesCount());
+        assertSame(cleared, cleared.clearValues(10, 20, null));
+    }
+
+    @Test
+    public void testCollectValues() {
+        PersistentSortedList<String> list = PersistentSortedList.empty();
+        for (int i = 99; i >= 0; i--) {
+            list = list.put(i, i, "v" + i);
+        }
+        list = list.clearValues(0, 10, null).clearValues(50, 95, null);
+
+        final ArrayList<String> values = new ArrayList<String>();
+        list.collectValues(values);
+        assertEquals(list.valuesCount(), values.size());
+        assertEquals("v10", values.get(0));
+        assertEquals("v49", values.get(39));
+        assertEquals("v95", values.get(40));
+        assertEquals("v99", values.get(44));
+
+        final ArrayList<Object> none = new ArrayList<Object>();
+        list.clearValues(0, 100, null).collectValues(none);
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    public void testFromSorted() {
+        final PersistentSortedList<String> list = PersistentSortedList.fromSorted(
+                new long[]{1, 1, 2}, new long[]{1, 2, 0}, new Object[]{"a", "b", "c"}, 3);
+        assertEquals(3, list.size());
+        assertEquals("b", list.get(1));
+        assertEquals(2, list.getSortKey(2));
+        assertTrue(PersistentSortedList.fromSorted(new long[0], new long[0], new Object[0], 0).isEmpty());
+    }
+
+    private static void assertMatches(TreeMap<long[], String> expected, PersistentSortedList<String> list) {
+        assertEquals(expected.size(), list.size());
+        int i = 0;
+        for (Map.Entry<long[], String> e : expected.entrySet()) {
+            assertEquals(e.getKey()[0], list.getSortKey(i));
+            assertEquals(e.getKey()[1], list.getId(i));
+            assertEquals(e.getValue(), list.get(i));
+            i++;
+        }
+    }
+}
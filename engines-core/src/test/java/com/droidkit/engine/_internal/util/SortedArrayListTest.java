@@ -0,0 +1,117 @@
+package com.droidkit.engine._internal.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class SortedArrayListTest {
+
+    /**
+     * Items are {key, sequence}, only key is compared
+     */
+    private static final Comparator<int[]> BY_KEY = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] lhs, int[] rhs) {
+            return lhs[0] < rhs[0] ? -1 : (lhs[0] == rhs[0] ? 0 : 1);
+        }
+    };
+
+    @Test
+    public void testAddKeepsOrderAndPutsEqualItemsLast() {
+        final SortedArrayList<int[]> list = new SortedArrayList<int[]>(BY_KEY);
+        final int[] first = new int[]{5, 0};
+        final int[] second = new int[]{5, 1};
+        list.add(new int[]{7, 0});
+        list.add(first);
+        list.add(new int[]{1, 0});
+        list.add(second);
+        list.add(new int[]{9, 0});
+
+        assertKeys(list, 1, 5, 5, 7, 9);
+        assertSame(first, list.get(1));
+        assertSame(second, list.get(2));
+    }
+
+    @Test
+    public void testAddAllMergesRandomBatches() {
+        final Random random = new Random(11);
+        final SortedArrayList<int[]> list = new SortedArrayList<int[]>(BY_KEY);
+        final ArrayList<int[]> expected = new ArrayList<int[]>();
+        int sequence = 0;
+
+        for (int round = 0; round < 50; round++) {
+            final ArrayList<int[]> batch = new ArrayList<int[]>();
+            final int size = random.nextInt(20);
+            for (int i = 0; i < size; i++) {
+                batch.add(new int[]{random.nextInt(30), sequence++});
+            }
+            switch (round % 3) {
+                case 0:
+                    Collections.sort(batch, BY_KEY);
+                    break;
+                case 1:
+                    Collections.sort(batch, Collections.reverseOrder(BY_KEY));
+                    break;
+                default:
+                    break;
+            }
+            assertEquals(!batch.isEmpty(), list.addAll(batch));
+
+            // Stable sort of old items followed by batch sorted by key
+            final ArrayList<int[]> sortedBatch = new ArrayList<int[]>(batch);
+            Collections.sort(sortedBatch, BY_KEY);
+            final ArrayList<int[]> all = new ArrayList<int[]>(expected);
+            all.addAll(sortedBatch);
+            Collections.sort(all, BY_KEY);
+            expected.clear();
+            expected.addAll(all);
+
+            assertEquals(expected.size(), list.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i)[0], list.get(i)[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testAddAllKeepsExistingItemsBeforeEqualNewOnes() {
+        final SortedArrayList<int[]> list = new SortedArrayList<int[]>(BY_KEY);
+        final int[] existing = new int[]{3, 0};
+        list.add(existing);
+        list.add(new int[]{8, 0});
+        final int[] added = new int[]{3, 1};
+        list.addAll(Arrays.asList(new int[]{10, 1}, added, new int[]{1, 1}));
+
+        assertKeys(list, 1, 3, 3, 8, 10);
+        assertSame(existing, list.get(1));
+        assertSame(added, list.get(2));
+        assertFalse(list.addAll(new ArrayList<int[]>()));
+    }
+
+    @Test
+    public void testBounds() {
+        final SortedArrayList<int[]> list = new SortedArrayList<int[]>(BY_KEY);
+        list.addAll(Arrays.asList(new int[]{1, 0}, new int[]{3, 0}, new int[]{3, 1}, new int[]{5, 0}));
+
+        assertEquals(0, list.lowerBound(new int[]{0, 0}));
+        assertEquals(1, list.lowerBound(new int[]{3, 0}));
+        assertEquals(3, list.upperBound(new int[]{3, 0}));
+        assertEquals(3, list.lowerBound(new int[]{4, 0}));
+        assertEquals(4, list.upperBound(new int[]{5, 0}));
+    }
+
+    private static void assertKeys(ArrayList<int[]> list, int... keys) {
+        assertEquals(keys.length, list.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], list.get(i)[0]);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.droidkit.engine.keyvalue;
+
+import com.droidkit.engine.Engines;
+import com.droidkit.engine.common.ValuesCallback;
+import com.droidkit.engine.keyvalue.log.LogStorageAdapter;
+import com.droidkit.engine.metrics.EngineMetrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyValueEngineTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        Engines.init();
+        directory = File.createTempFile("key_value_log", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testStreamingOfSliceStorage() throws InterruptedException {
+        final LogStorageAdapter<Item> storage = new LogStorageAdapter<Item>(directory, new ItemAdapter());
+        fill(storage, 7);
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L), Arrays.asList(4L, 5L, 6L), Arrays.asList(7L)),
+                stream(new KeyValueEngine<Item>(storage, new ItemAdapter()), 3));
+    }
+
+    @Test
+    public void testStreamingOfStorageWithoutSlices() throws InterruptedException {
+        final BasicStorage storage = new BasicStorage();
+        fill(storage, 7);
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L), Arrays.asList(4L, 5L, 6L), Arrays.asList(7L)),
+                stream(new KeyValueEngine<Item>(storage, new ItemAdapter()), 3));
+    }
+
+    @Test
+    public void testStreamingEndsWithEmptyChunk() throws InterruptedException {
+        final BasicStorage storage = new BasicStorage();
+        fill(storage, 4);
+        final ArrayList<Long> empty = new ArrayList<Long>();
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList(3L, 4L), empty),
+                stream(new KeyValueEngine<Item>(storage, new ItemAdapter()), 2));
+    }
+
+    @Test
+    public void testStreamingIsFinishedOnStorageError() throws InterruptedException {
+        final LogStorageAdapter<Item> storage = new LogStorageAdapter<Item>(directory, new ItemAdapter()) {
+            @Override
+            public ArrayList<Item> loadSlice(int limit, long afterId) {
+                if (afterId != Long.MIN_VALUE) {
+                    throw new IllegalStateException("Storage is closed");
+                }
+                return super.loadSlice(limit, afterId);
+            }
+        };
+        fill(storage, 7);
+        final ArrayList<Long> empty = new ArrayList<Long>();
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L), empty),
+                stream(new KeyValueEngine<Item>(storage, new ItemAdapter()), 3));
+    }
+
+    @Test
+    public void testGetByIdsOfMultiGetStorage() throws InterruptedException {
+        final LogStorageAdapter<Item> storage = new LogStorageAdapter<Item>(directory, new ItemAdapter());
+        fill(storage, 7);
+        checkGetByIds(new KeyValueEngine<Item>(storage, new ItemAdapter()));
+    }
+
+    @Test
+    public void testGetByIdsOfStorageWithoutMultiGet() throws InterruptedException {
+        final BasicStorage storage = new BasicStorage();
+        fill(storage, 7);
+        checkGetByIds(new KeyValueEngine<Item>(storage, new ItemAdapter()));
+    }
+
+    @Test
+    public void testDisposeUnregistersMetrics() {
+        final KeyValueEngine<Item> engine = new KeyValueEngine<Item>(new BasicStorage(), new ItemAdapter());
+        final String prefix = "key_value_" + engine.getUniqueId() + ".";
+        assertTrue(EngineMetrics.snapshot().getGauges().containsKey(prefix + "queue.db"));
+        assertTrue(EngineMetrics.snapshot().getHistograms().containsKey(prefix + "db.getById"));
+
+        engine.dispose();
+        assertFalse(EngineMetrics.snapshot().getGauges().containsKey(prefix + "queue.db"));
+        assertFalse(EngineMetrics.snapshot().getHistograms().containsKey(prefix + "db.getById"));
+    }
+
+    private static void checkGetByIds(KeyValueEngine<Item> engine) throws InterruptedException {
+        assertEquals(new HashSet<Long>(Arrays.asList(2L, 5L)), getByIds(engine, new long[]{2, 5, 42}));
+        // 2 and 5 are cached now, 7 is loaded from storage
+        assertEquals(new HashSet<Long>(Arrays.asList(2L, 5L, 7L)), getByIds(engine, new long[]{7, 2, 5, 100}));
+        assertEquals(new HashSet<Long>(), getByIds(engine, new long[]{0, 8}));
+    }
+
+    private static HashSet<Long> getByIds(KeyValueEngine<Item> engine, long[] ids) throws InterruptedException {
+        final HashSet<Long> res = new HashSet<Long>();
+        final CountDownLatch isLoaded = new CountDownLatch(1);
+        engine.getByIds(ids, new ValuesCallback<Item>() {
+            @Override
+            public void values(ArrayList<Item> value) {
+                synchronized (res) {
+                    for (Item item : value) {
+                        res.add(item.id);
+                    }
+                }
+                isLoaded.countDown();
+            }
+        });
+        assertTrue(isLoaded.await(5, TimeUnit.SECONDS));
+        synchronized (res) {
+            return res;
+        }
+    }
+
+    private static void fill(StorageAdapter<Item> storage, int count) {
+        for (long id = count; id >= 1; id--) {
+            storage.insertSingle(new Item(id, "v" + id));
+        }
+    }
+
+    /**
+     * @return ids of all streamed chunks
+     */
+    private static ArrayList<ArrayList<Long>> stream(KeyValueEngine<Item> engine, final int chunkSize)
+            throws InterruptedException {
+        final ArrayList<ArrayList<Long>> chunks = new ArrayList<ArrayList<Long>>();
+        final CountDownLatch isLoaded = new CountDownLatch(1);
+        engine.getAllFromDiskStreaming(chunkSize, new ValuesCallback<Item>() {
+            @Override
+            public void values(ArrayList<Item> value) {
+                final ArrayList<Long> ids = new ArrayList<Long>();
+                for (Item item : value) {
+                    ids.add(item.id);
+                }
+                synchronized (chunks) {
+                    chunks.add(ids);
+                }
+                if (value.size() < chunkSize) {
+                    isLoaded.countDown();
+                }
+            }
+        });
+        assertTrue(isLoaded.await(5, TimeUnit.SECONDS));
+        synchronized (chunks) {
+            return chunks;
+        }
+    }
+
+    private static class Item {
+        private final long id;
+        private final String value;
+
+        private Item(long id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    private static class ItemAdapter implements DataAdapter<Item> {
+        @Override
+        public long getId(Item value) {
+            return value.id;
+        }
+
+        @Override
+        public byte[] serialize(Item entity) {
+            return (entity.id + ":" + entity.value).getBytes();
+        }
+
+        @Override
+        public Item deserialize(byte[] item) {
+            final String[] parts = new String(item).split(":");
+            return new Item(Long.parseLong(parts[0]), parts[1]);
+        }
+    }
+
+    /**
+     * Storage implementing only basic StorageAdapter methods, as adapters written before optional interfaces
+     */
+    private static class BasicStorage implements StorageAdapter<Item> {
+        private final HashMap<Long, Item> items = new HashMap<Long, Item>();
+
+        @Override
+        public synchronized void insertSingle(Item item) {
+            items.put(item.id, item);
+        }
+
+        @Override
+        public synchronized void insertOrReplaceSingle(Item item) {
+            items.put(item.id, item);
+        }
+
+        @Override
+        public synchronized void deleteSingle(long id) {
+            items.remove(id);
+        }
+
+        @Override
+        public synchronized void insertBatch(ArrayList<Item> list) {
+            for (Item item : list) {
+                items.put(item.id, item);
+            }
+        }
+
+        @Override
+        public void insertOrReplaceBatch(ArrayList<Item> list) {
+            insertBatch(list);
+        }
+
+        @Override
+        public synchronized void deleteBatch(ArrayList<Long> ids) {
+            for (Long id : ids) {
+                items.remove(id);
+            }
+        }
+
+        @Override
+        public synchronized void deleteAll() {
+            items.clear();
+        }
+
+        @Override
+        public synchronized ArrayList<Item> loadAll() {
+            return new ArrayList<Item>(items.values());
+        }
+
+        @Override
+        public synchronized Item getById(long id) {
+            return items.get(id);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.droidkit.engine.list;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListChangeSetTest {
+
+    @Test
+    public void testNeighbourChangesAreMerged() {
+        final ListChangeSet changes = new ListChangeSet(1);
+        changes.insert(5, 1);
+        changes.insert(6, 2);
+        changes.insert(5, 1);
+        changes.remove(3, 1);
+        changes.remove(2, 1);
+        changes.change(0, 2);
+        changes.change(2, 1);
+
+        final List<ListChange> list = changes.getChanges();
+        assertEquals(3, list.size());
+        assertChange(list.get(0), ListChange.TYPE_INSERT, 5, 4);
+        assertChange(list.get(1), ListChange.TYPE_REMOVE, 2, 2);
+        assertChange(list.get(2), ListChange.TYPE_CHANGE, 0, 3);
+    }
+
+    @Test
+    public void testDistantChangesAreNotMerged() {
+        final ListChangeSet changes = new ListChangeSet(1);
+        changes.insert(0, 1);
+        changes.insert(5, 1);
+        changes.move(2, 2);
+        changes.move(1, 3);
+
+        final List<ListChange> list = changes.getChanges();
+        assertEquals(3, list.size());
+        assertChange(list.get(0), ListChange.TYPE_INSERT, 0, 1);
+        assertChange(list.get(1), ListChange.TYPE_INSERT, 5, 1);
+        assertEquals(ListChange.TYPE_MOVE, list.get(2).getType());
+        assertEquals(3, list.get(2).getToPosition());
+    }
+
+    @Test
+    public void testAppend() {
+        final ListChangeSet first = new ListChangeSet(1);
+        first.insert(0, 2);
+        first.setToVersion(2);
+        final ListChangeSet second = new ListChangeSet(2);
+        second.insert(2, 1);
+        second.change(0, 1);
+        second.setToVersion(3);
+
+        first.append(second);
+        assertEquals(1, first.getFromVersion());
+        assertEquals(3, first.getToVersion());
+        assertEquals(2, first.getChanges().size());
+        assertChange(first.getChanges().get(0), ListChange.TYPE_INSERT, 0, 3);
+        assertTrue(new ListChangeSet(5).isEmpty());
+    }
+
+    @Test
+    public void testReplayedChangesGiveSameList() {
+        final Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            final ArrayList<Integer> original = new ArrayList<Integer>();
+            for (int i = 0; i < 20; i++) {
+                original.add(i);
+            }
+            final ArrayList<Integer> actual = new ArrayList<Integer>(original);
+            final ListChangeSet changes = new ListChangeSet(0);
+            int next = 1000;
+
+            for (int op = 0; op < 30; op++) {
+                final int size = actual.size();
+                switch (random.nextInt(4)) {
+                    case 0: {
+                        final int position = random.nextInt(size + 1);
+                        final int count = 1 + random.nextInt(3);
+                        for (int i = 0; i < count; i++) {
+                            actual.add(position + i, next++);
+                        }
+                        changes.insert(position, count);
+                        break;
+                    }
+                    case 1: {
+                        if (size == 0) {
+                            break;
+                        }
+                        final int position = random.nextInt(size);
+                        final int count = Math.min(1 + random.nextInt(3), size - position);
+                        for (int i = 0; i < count; i++) {
+                            actual.remove(position);
+                        }
+                        changes.remove(position, count);
+                        break;
+                    }
+                    case 2: {
+                        if (size == 0) {
+                            break;
+                        }
+                        final int from = random.nextInt(size);
+                        final int to = random.nextInt(size);
+                        actual.add(to, actual.remove(from));
+                        changes.move(from, to);
+                        break;
+                    }
+                    default: {
+                        if (size == 0) {
+                            break;
+                        }
+                        final int position = random.nextInt(size);
+                        changes.change(position, Math.min(2, size - position));
+                        break;
+                    }
+                }
+            }
+
+            assertEquals(withoutInserted(actual), replay(original, changes));
+        }
+    }
+
+    /**
+     * Apply changes to list, inserted items are -1
+     */
+    private static ArrayList<Integer> replay(ArrayList<Integer> original, ListChangeSet changes) {
+        final ArrayList<Integer> res = new ArrayList<Integer>(original);
+        for (ListChange c : changes.getChanges()) {
+            switch (c.getType()) {
+                case ListChange.TYPE_INSERT:
+                    for (int i = 0; i < c.getCount(); i++) {
+                        res.add(c.getPosition(), -1);
+                    }
+                    break;
+                case ListChange.TYPE_REMOVE:
+                    for (int i = 0; i < c.getCount(); i++) {
+                        res.remove(c.getPosition());
+                    }
+                    break;
+                case ListChange.TYPE_MOVE:
+                    res.add(c.getToPosition(), res.remove(c.getPosition()));
+                    break;
+                default:
+                    assertTrue(c.getPosition() + c.getCount() <= res.size());
+                    break;
+            }
+        }
+        return res;
+    }
+
+    private static ArrayList<Integer> withoutInserted(ArrayList<Integer> list) {
+        final ArrayList<Integer> res = new ArrayList<Integer>(list.size());
+        for (Integer i : list) {
+            res.add(i >= 1000 ? -1 : i);
+        }
+        return res;
+    }
+
+    private static void assertChange(ListChange change, int type, int position, int count) {
+        assertEquals(type, change.getType());
+        assertEquals(position, change.getPosition());
+        assertEquals(count, change.getCount());
+    }
+}
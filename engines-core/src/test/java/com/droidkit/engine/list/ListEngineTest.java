@@ -0,0 +1,510 @@
+package com.droidkit.engine.list;
+
+import com.droidkit.engine.Engines;
+import com.droidkit.engine.common.ValueCallback;
+import com.droidkit.engine.list.log.LogStorageAdapter;
+import com.droidkit.engine.metrics.EngineMetrics;
+import com.droidkit.engine.metrics.MetricsSnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ListEngineTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private File directory;
+
+    private LogStorageAdapter<Item> storage;
+
+    @Before
+    public void setUp() throws IOException {
+        Engines.init();
+        directory = File.createTempFile("list_engine", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        storage = new LogStorageAdapter<Item>(directory, true, new ItemAdapter());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRemoveOfEvictedItem() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(100);
+        engine.setMemoryWindow(20);
+        engine.getValueFromMemoryList(10);
+        waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.get(80) == null;
+            }
+        }, engine);
+        assertNotNull(engine.getSnapshot().get(10));
+
+        engine.removeItem(80);
+        final ListSnapshot<Item> afterRemove = waitForSize(engine, 99);
+        assertEquals(79, afterRemove.getId(79));
+        assertEquals(81, afterRemove.getId(80));
+        assertNull(afterRemove.get(80));
+        checkOrder(afterRemove);
+
+        engine.removeItems(new long[]{90, 5, 1000});
+        final ListSnapshot<Item> afterBatch = waitForSize(engine, 97);
+        assertEquals(4, afterBatch.getId(4));
+        assertEquals(6, afterBatch.getId(5));
+        assertEquals(6, afterBatch.get(5).id);
+        checkOrder(afterBatch);
+        for (int i = 0; i < afterBatch.size(); i++) {
+            assertTrue(afterBatch.getId(i) != 80 && afterBatch.getId(i) != 90);
+        }
+    }
+
+    @Test
+    public void testEvictedValuesAreReloadedOnAccess() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(100);
+        engine.setMemoryWindow(20);
+        engine.getValueFromMemoryList(10);
+        waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.get(80) == null;
+            }
+        }, engine);
+
+        assertNull(engine.getValueFromMemoryList(80));
+        final ListSnapshot<Item> reloaded = waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.get(80) != null;
+            }
+        }, engine);
+        assertEquals(100, reloaded.size());
+        assertEquals(80, reloaded.get(80).id);
+        assertNotNull(reloaded.get(84));
+    }
+
+    @Test
+    public void testWindowReloadIsDroppedAfterClear() throws InterruptedException {
+        final CountDownLatch rangeStarted = new CountDownLatch(1);
+        final CountDownLatch rangeReleased = new CountDownLatch(1);
+        storage = new LogStorageAdapter<Item>(directory, true, new ItemAdapter()) {
+            @Override
+            public ArrayList<Item> loadListRange(long fromSortKey, long toSortKey) {
+                final ArrayList<Item> res = super.loadListRange(fromSortKey, toSortKey);
+                rangeStarted.countDown();
+                try {
+                    rangeReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return res;
+            }
+        };
+        final ListEngine<Item> engine = loadedEngine(100);
+        engine.setMemoryWindow(20);
+        engine.getValueFromMemoryList(10);
+        waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.get(80) == null;
+            }
+        }, engine);
+
+        engine.getValueFromMemoryList(80);
+        assertTrue(rangeStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        engine.clear();
+        waitForSize(engine, 0);
+        rangeReleased.countDown();
+
+        // Read actor handles reads in order, so reload is finished before this read
+        final CountDownLatch isRead = new CountDownLatch(1);
+        engine.getValueFromDb(-1, new ValueCallback<Item>() {
+            @Override
+            public void value(Item value) {
+                isRead.countDown();
+            }
+        });
+        assertTrue(isRead.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        engine.addItem(new Item(1000, 1000));
+        waitForSize(engine, 1);
+        assertNull(engine.getValueFromMemory(80));
+        assertNull(engine.getValueFromMemory(82));
+    }
+
+    @Test
+    public void testViewDropsEvictedItemsTillReload() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(100);
+        final ListView<Item> view = engine.createView(new ListFilter<Item>() {
+            @Override
+            public boolean accept(Item value) {
+                return value.id % 2 == 0;
+            }
+        });
+        waitForView(view, 50);
+        assertEquals(40, view.getSnapshot().getId(20));
+
+        engine.setMemoryWindow(20);
+        engine.getValueFromMemoryList(10);
+        // Only even items of window [0, 20) stay in view
+        final ListSnapshot<Item> trimmed = waitForView(view, 10);
+        for (int i = 0; i < trimmed.size(); i++) {
+            assertEquals(i * 2, trimmed.getId(i));
+            assertNotNull(trimmed.get(i));
+        }
+
+        engine.getValueFromMemoryList(80);
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!contains(view.getSnapshot(), 80)) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        final ListSnapshot<Item> restored = view.getSnapshot();
+        for (int i = 0; i < restored.size(); i++) {
+            assertNotNull(restored.get(i));
+        }
+    }
+
+    private static boolean contains(ListSnapshot<Item> snapshot, long id) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getId(i) == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testViewIsFilledWithLoadedValues() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(30);
+        final ListView<Item> view = engine.createView(new ListFilter<Item>() {
+            @Override
+            public boolean accept(Item value) {
+                return value.sortKey >= 20;
+            }
+        });
+        final ListSnapshot<Item> snapshot = waitForView(view, 10);
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(20 + i, snapshot.get(i).id);
+        }
+    }
+
+    @Test
+    public void testUpdateMovesItemToNewSortKey() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(10);
+        engine.updateItem(new Item(3, 100));
+        final ListSnapshot<Item> snapshot = waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.getId(snapshot.size() - 1) == 3;
+            }
+        }, engine);
+        assertEquals(10, snapshot.size());
+        assertEquals(4, snapshot.getId(3));
+        assertEquals(100, snapshot.get(9).sortKey);
+        checkOrder(snapshot);
+    }
+
+    @Test
+    public void testBatchReplacesExistingAndDuplicateIds() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(10);
+        final ArrayList<Item> batch = new ArrayList<Item>();
+        batch.add(new Item(2, 50));
+        batch.add(new Item(11, 5));
+        batch.add(new Item(11, 6));
+        batch.add(new Item(4, 4));
+        engine.addOrUpdateItems(batch);
+
+        final ListSnapshot<Item> snapshot = waitForSize(engine, 11);
+        checkOrder(snapshot);
+        assertEquals(2, snapshot.getId(10));
+        // Last value of id in batch wins, equal sort keys are ordered by id
+        assertEquals(6, snapshot.getId(5));
+        assertEquals(11, snapshot.getId(6));
+        assertEquals(6, snapshot.get(6).sortKey);
+    }
+
+    @Test
+    public void testRemoveOfMissingItemKeepsList() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(10);
+        engine.removeItem(1000);
+        engine.removeItem(3);
+        final ListSnapshot<Item> snapshot = waitForSize(engine, 9);
+        assertEquals(4, snapshot.getId(3));
+        checkOrder(snapshot);
+    }
+
+    @Test
+    public void testPrefetchLoadsNextSliceNearEnd() throws InterruptedException {
+        final ListEngine<Item> engine = slicedEngine(100, 20);
+        engine.setPrefetch(10);
+        engine.getValueFromMemoryList(0);
+        engine.getValueFromMemoryList(5);
+        Thread.sleep(100);
+        assertEquals(20, engine.getSnapshot().size());
+
+        engine.getValueFromMemoryList(15);
+        final ListSnapshot<Item> snapshot = waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.size() > 20;
+            }
+        }, engine);
+        assertTrue(snapshot.size() <= 100);
+        checkOrder(snapshot);
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(i, snapshot.getId(i));
+        }
+    }
+
+    @Test
+    public void testNoPrefetchWhenDisabled() throws InterruptedException {
+        final ListEngine<Item> engine = slicedEngine(100, 20);
+        engine.setPrefetch(10);
+        engine.setPrefetch(0);
+        engine.getValueFromMemoryList(19);
+        Thread.sleep(100);
+        assertEquals(20, engine.getSnapshot().size());
+    }
+
+    @Test
+    public void testWriteBehindCollapsesBufferedWrites() throws InterruptedException {
+        final CountingStorage counting = new CountingStorage(directory);
+        storage = counting;
+        final ListEngine<Item> engine = loadedEngine(10);
+        engine.setWriteBehind(60000, 0);
+        engine.addItem(new Item(100, 100));
+        engine.updateItem(new Item(100, 200));
+        engine.addItem(new Item(101, 101));
+        engine.removeItem(3);
+        final ListSnapshot<Item> snapshot = waitForSize(engine, 11);
+        assertEquals(101, snapshot.getId(9));
+        assertEquals(100, snapshot.getId(10));
+        assertEquals(200, snapshot.getSortKey(10));
+        assertNull(storage.getById(100));
+        assertNotNull(storage.getById(3));
+
+        engine.flush();
+        waitForStorage(100);
+        assertEquals(200, storage.getById(100).sortKey);
+        assertNotNull(storage.getById(101));
+        assertNull(storage.getById(3));
+        assertEquals(1, counting.replacedBatches.size());
+        assertEquals(2, (int) counting.replacedBatches.get(0));
+        assertEquals(1, counting.deletedBatches.size());
+        assertEquals(1, (int) counting.deletedBatches.get(0));
+    }
+
+    @Test
+    public void testReadSeesBufferedWrites() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(10);
+        engine.setWriteBehind(60000, 0);
+        engine.updateItem(new Item(5, 50));
+        final CountDownLatch isRead = new CountDownLatch(1);
+        final Item[] read = new Item[1];
+        engine.getValueFromDb(5, new ValueCallback<Item>() {
+            @Override
+            public void value(Item value) {
+                read[0] = value;
+                isRead.countDown();
+            }
+        });
+        assertTrue(isRead.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(50, read[0].sortKey);
+    }
+
+    @Test
+    public void testWriteBehindIsFlushedBySizeAndDelay() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(10);
+        engine.setWriteBehind(60000, 3);
+        engine.addItem(new Item(100, 100));
+        engine.addItem(new Item(101, 101));
+        engine.addItem(new Item(102, 102));
+        waitForStorage(102);
+        assertNotNull(storage.getById(100));
+
+        engine.setWriteBehind(50, 0);
+        engine.addItem(new Item(103, 103));
+        waitForStorage(103);
+    }
+
+    @Test
+    public void testDisposeUnregistersMetrics() throws InterruptedException {
+        final ListEngine<Item> engine = loadedEngine(10);
+        final String prefix = "list_" + engine.getListEngineId() + ".";
+        assertTrue(hasMetrics(prefix));
+
+        engine.dispose();
+        assertFalse(hasMetrics(prefix));
+    }
+
+    private static boolean hasMetrics(String prefix) {
+        final MetricsSnapshot snapshot = EngineMetrics.snapshot();
+        for (String name : snapshot.getHistograms().keySet()) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (String name : snapshot.getGauges().keySet()) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ListEngine<Item> loadedEngine(int count) throws InterruptedException {
+        return slicedEngine(count, count);
+    }
+
+    private ListEngine<Item> slicedEngine(int count, int sliceSize) throws InterruptedException {
+        final ArrayList<Item> items = new ArrayList<Item>();
+        for (long id = 0; id < count; id++) {
+            items.add(new Item(id, id));
+        }
+        storage.insertBatch(items);
+        final ListEngine<Item> engine = new ListEngine<Item>(storage, new ItemAdapter());
+        engine.loadNextListSlice(sliceSize);
+        waitForSize(engine, sliceSize);
+        return engine;
+    }
+
+    private void waitForStorage(long id) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (storage.getById(id) != null) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Item " + id + " is not written to storage");
+    }
+
+    private static void checkOrder(ListSnapshot<Item> snapshot) {
+        for (int i = 1; i < snapshot.size(); i++) {
+            final long prevKey = snapshot.getSortKey(i - 1);
+            final long key = snapshot.getSortKey(i);
+            assertTrue(prevKey < key || (prevKey == key && snapshot.getId(i - 1) < snapshot.getId(i)));
+        }
+    }
+
+    private static ListSnapshot<Item> waitForSize(ListEngine<Item> engine, final int size)
+            throws InterruptedException {
+        return waitFor(new Condition() {
+            @Override
+            public boolean isMet(ListSnapshot<Item> snapshot) {
+                return snapshot.size() == size;
+            }
+        }, engine);
+    }
+
+    private static ListSnapshot<Item> waitForView(ListView<Item> view, int size) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            final ListSnapshot<Item> snapshot = view.getSnapshot();
+            if (snapshot.size() == size) {
+                return snapshot;
+            }
+            Thread.sleep(5);
+        }
+        fail("View size " + view.getSnapshot().size() + " instead of " + size);
+        return null;
+    }
+
+    private static ListSnapshot<Item> waitFor(Condition condition, ListEngine<Item> engine)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            final ListSnapshot<Item> snapshot = engine.getSnapshot();
+            if (condition.isMet(snapshot)) {
+                return snapshot;
+            }
+            Thread.sleep(5);
+        }
+        fail("Condition is not met, list size " + engine.getSnapshot().size());
+        return null;
+    }
+
+    private interface Condition {
+        boolean isMet(ListSnapshot<Item> snapshot);
+    }
+
+    /**
+     * Records sizes of batch writes of engine
+     */
+    static class CountingStorage extends LogStorageAdapter<Item> {
+        final ArrayList<Integer> replacedBatches = new ArrayList<Integer>();
+        final ArrayList<Integer> deletedBatches = new ArrayList<Integer>();
+
+        CountingStorage(File directory) {
+            super(directory, true, new ItemAdapter());
+        }
+
+        @Override
+        public void insertOrReplaceBatch(ArrayList<Item> items) {
+            replacedBatches.add(items.size());
+            super.insertOrReplaceBatch(items);
+        }
+
+        @Override
+        public void deleteBatch(ArrayList<Long> ids) {
+            deletedBatches.add(ids.size());
+            super.deleteBatch(ids);
+        }
+    }
+
+    static class Item {
+        final long id;
+        final long sortKey;
+
+        Item(long id, long sortKey) {
+            this.id = id;
+            this.sortKey = sortKey;
+        }
+    }
+
+    static class ItemAdapter implements DataAdapter<Item> {
+        @Override
+        public long getId(Item value) {
+            return value.id;
+        }
+
+        @Override
+        public long getSortKey(Item value) {
+            return value.sortKey;
+        }
+
+        @Override
+        public byte[] serialize(Item entity) {
+            return (entity.id + ":" + entity.sortKey).getBytes();
+        }
+
+        @Override
+        public Item deserialize(byte[] item) {
+            final String[] parts = new String(item).split(":");
+            return new Item(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+}
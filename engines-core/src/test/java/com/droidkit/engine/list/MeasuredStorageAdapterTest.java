@@ -0,0 +1,143 @@
+package com.droidkit.engine.list;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MeasuredStorageAdapterTest {
+
+    @Test
+    public void testRangeOfBasicStorageIsFilteredFromAll() {
+        final BasicStorage storage = new BasicStorage();
+        storage.insertSingle(new Item(1, 50));
+        storage.insertSingle(new Item(2, 10));
+        storage.insertSingle(new Item(3, 30));
+        storage.insertSingle(new Item(4, 20));
+        storage.insertSingle(new Item(5, 20));
+        storage.insertSingle(new Item(6, 40));
+
+        final MeasuredStorageAdapter<Item> measured = measured(storage);
+        assertEquals(Arrays.asList(4L, 5L, 3L, 6L), ids(measured.loadListRange(20, 40)));
+        assertEquals(Arrays.asList(2L), ids(measured.loadListRange(10, 10)));
+        assertEquals(0, measured.loadListRange(60, 70).size());
+    }
+
+    @Test
+    public void testOptionalOperationsOfBasicStorage() {
+        final MeasuredStorageAdapter<Item> measured = measured(new BasicStorage());
+        assertFalse(measured.isKeysetSupported());
+        assertFalse(measured.isRawSupported());
+    }
+
+    private static MeasuredStorageAdapter<Item> measured(StorageAdapter<Item> storage) {
+        return new MeasuredStorageAdapter<Item>(storage, new ItemAdapter(), "measured_test");
+    }
+
+    private static ArrayList<Long> ids(ArrayList<Item> items) {
+        final ArrayList<Long> res = new ArrayList<Long>();
+        for (Item item : items) {
+            res.add(item.id);
+        }
+        return res;
+    }
+
+    private static class Item {
+        private final long id;
+        private final long sortKey;
+
+        private Item(long id, long sortKey) {
+            this.id = id;
+            this.sortKey = sortKey;
+        }
+    }
+
+    private static class ItemAdapter implements DataAdapter<Item> {
+        @Override
+        public long getId(Item value) {
+            return value.id;
+        }
+
+        @Override
+        public long getSortKey(Item value) {
+            return value.sortKey;
+        }
+
+        @Override
+        public byte[] serialize(Item entity) {
+            return (entity.id + ":" + entity.sortKey).getBytes();
+        }
+
+        @Override
+        public Item deserialize(byte[] item) {
+            final String[] parts = new String(item).split(":");
+            return new Item(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+
+    /**
+     * Storage implementing only basic StorageAdapter methods, as adapters written before optional interfaces
+     */
+    private static class BasicStorage implements StorageAdapter<Item> {
+        private final HashMap<Long, Item> items = new HashMap<Long, Item>();
+
+        @Override
+        public void insertSingle(Item item) {
+            items.put(item.id, item);
+        }
+
+        @Override
+        public void insertOrReplaceSingle(Item item) {
+            items.put(item.id, item);
+        }
+
+        @Override
+        public void deleteSingle(long id) {
+            items.remove(id);
+        }
+
+        @Override
+        public void insertBatch(ArrayList<Item> list) {
+            for (Item item : list) {
+                insertSingle(item);
+            }
+        }
+
+        @Override
+        public void insertOrReplaceBatch(ArrayList<Item> list) {
+            insertBatch(list);
+        }
+
+        @Override
+        public void deleteBatch(ArrayList<Long> ids) {
+            for (Long id : ids) {
+                items.remove(id);
+            }
+        }
+
+        @Override
+        public void deleteAll() {
+            items.clear();
+        }
+
+        @Override
+        public ArrayList<Item> loadListSlice(int limit, int offset) {
+            final ArrayList<Item> all = loadAll();
+            return new ArrayList<Item>(all.subList(Math.min(offset, all.size()), Math.min(offset + limit, all.size())));
+        }
+
+        @Override
+        public ArrayList<Item> loadAll() {
+            return new ArrayList<Item>(items.values());
+        }
+
+        @Override
+        public Item getById(long id) {
+            return items.get(id);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.droidkit.engine.list;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StartupSnapshotFileTest {
+
+    @Test
+    public void testItemsAreReadBack() throws IOException {
+        final File file = File.createTempFile("snapshot", ".bin");
+        try {
+            final ArrayList<RawItem> items = new ArrayList<RawItem>();
+            items.add(new RawItem(1, 10, new byte[]{1, 2, 3}));
+            items.add(new RawItem(2, 20, new byte[0]));
+            StartupSnapshotFile.write(file, items);
+
+            final ArrayList<RawItem> res = StartupSnapshotFile.read(file);
+            assertEquals(2, res.size());
+            assertItem(res.get(0), 1, 10, 3);
+            assertItem(res.get(1), 2, 20, 0);
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testItemsWithoutBytesAreSkipped() throws IOException {
+        final File file = File.createTempFile("snapshot", ".bin");
+        try {
+            final ArrayList<RawItem> items = new ArrayList<RawItem>();
+            items.add(new RawItem(1, 10, null));
+            items.add(new RawItem(2, 20, new byte[]{7}));
+            items.add(new RawItem(3, 30, null));
+            StartupSnapshotFile.write(file, items);
+
+            final ArrayList<RawItem> res = StartupSnapshotFile.read(file);
+            assertEquals(1, res.size());
+            assertItem(res.get(0), 2, 20, 1);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testExistingSnapshotIsReplaced() throws IOException {
+        final File file = File.createTempFile("snapshot", ".bin");
+        try {
+            final ArrayList<RawItem> first = new ArrayList<RawItem>();
+            first.add(new RawItem(1, 10, new byte[]{1}));
+            first.add(new RawItem(2, 20, new byte[]{2}));
+            StartupSnapshotFile.write(file, first);
+
+            final ArrayList<RawItem> second = new ArrayList<RawItem>();
+            second.add(new RawItem(5, 50, new byte[]{5, 5}));
+            StartupSnapshotFile.write(file, second);
+
+            final ArrayList<RawItem> res = StartupSnapshotFile.read(file);
+            assertEquals(1, res.size());
+            assertItem(res.get(0), 5, 50, 2);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertItem(RawItem item, long id, long sortKey, int length) {
+        assertEquals(id, item.getId());
+        assertEquals(sortKey, item.getSortKey());
+        assertEquals(length, item.getBytes().length);
+    }
+}
@@ -0,0 +1,143 @@
+package com.droidkit.engine.list.log;
+
+import com.droidkit.engine.list.DataAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogStorageAdapterTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("list_log", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testKeysetPagesWithEqualSortKeysAscending() {
+        checkKeysetPages(true);
+    }
+
+    @Test
+    public void testKeysetPagesWithEqualSortKeysDescending() {
+        checkKeysetPages(false);
+    }
+
+    @Test
+    public void testKeysetPagesMatchOffsetPages() {
+        final LogStorageAdapter<Item> adapter = new LogStorageAdapter<Item>(directory, false, new ItemAdapter());
+        fill(adapter);
+
+        final ArrayList<Long> byOffset = new ArrayList<Long>();
+        ArrayList<Item> page;
+        while (!(page = adapter.loadListSlice(4, byOffset.size())).isEmpty()) {
+            for (Item item : page) {
+                byOffset.add(item.id);
+            }
+        }
+        assertEquals(ids(adapter.loadListSlice(-1, 0)), byOffset);
+        assertEquals(byOffset, keysetIds(adapter, 4));
+    }
+
+    private void checkKeysetPages(boolean asc) {
+        final LogStorageAdapter<Item> adapter = new LogStorageAdapter<Item>(directory, asc, new ItemAdapter());
+        fill(adapter);
+
+        final ArrayList<Long> all = ids(adapter.loadAll());
+        assertEquals(25, all.size());
+        for (int limit = 1; limit <= 7; limit++) {
+            assertEquals(all, keysetIds(adapter, limit));
+        }
+    }
+
+    /**
+     * 20 items share one sort key, so every page boundary inside them is decided by id
+     */
+    private static void fill(LogStorageAdapter<Item> adapter) {
+        final ArrayList<Item> items = new ArrayList<Item>();
+        for (long id = 20; id >= 1; id--) {
+            items.add(new Item(id, 7));
+        }
+        items.add(new Item(100, 1));
+        items.add(new Item(101, 3));
+        items.add(new Item(102, 9));
+        items.add(new Item(103, 9));
+        items.add(new Item(104, 12));
+        adapter.insertBatch(items);
+    }
+
+    private static ArrayList<Long> keysetIds(LogStorageAdapter<Item> adapter, int limit) {
+        final ArrayList<Long> res = new ArrayList<Long>();
+        ArrayList<Item> page = adapter.loadListSlice(limit, 0);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= limit);
+            res.addAll(ids(page));
+            final Item last = page.get(page.size() - 1);
+            page = adapter.loadListSlice(limit, last.sortKey, last.id);
+        }
+        return res;
+    }
+
+    private static ArrayList<Long> ids(ArrayList<Item> items) {
+        final ArrayList<Long> res = new ArrayList<Long>();
+        for (Item item : items) {
+            res.add(item.id);
+        }
+        return res;
+    }
+
+    private static class Item {
+        private final long id;
+        private final long sortKey;
+
+        private Item(long id, long sortKey) {
+            this.id = id;
+            this.sortKey = sortKey;
+        }
+    }
+
+    private static class ItemAdapter implements DataAdapter<Item> {
+        @Override
+        public long getId(Item value) {
+            return value.id;
+        }
+
+        @Override
+        public long getSortKey(Item value) {
+            return value.sortKey;
+        }
+
+        @Override
+        public byte[] serialize(Item entity) {
+            return (entity.id + ":" + entity.sortKey).getBytes();
+        }
+
+        @Override
+        public Item deserialize(byte[] item) {
+            final String[] parts = new String(item).split(":");
+            return new Item(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+}
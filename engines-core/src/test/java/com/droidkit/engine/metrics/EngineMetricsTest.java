@@ -0,0 +1,61 @@
+package com.droidkit.engine.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EngineMetricsTest {
+
+    @Test
+    public void testMetricsAreUnregisteredByPrefix() {
+        EngineMetrics.histogram("test_1.db.load");
+        EngineMetrics.counter("test_1.fired");
+        EngineMetrics.registerGauge("test_1.queue", new ConstGauge(1));
+        EngineMetrics.histogram("test_10.db.load");
+        EngineMetrics.registerGauge("test_10.queue", new ConstGauge(10));
+
+        EngineMetrics.unregisterAll("test_1.");
+
+        final MetricsSnapshot snapshot = EngineMetrics.snapshot();
+        assertNull(snapshot.getHistograms().get("test_1.db.load"));
+        assertNull(snapshot.getCounters().get("test_1.fired"));
+        assertNull(snapshot.getGauges().get("test_1.queue"));
+        assertTrue(snapshot.getHistograms().containsKey("test_10.db.load"));
+        assertEquals(10, snapshot.getGauge("test_10.queue"));
+
+        EngineMetrics.unregisterHistogram("test_10.db.load");
+        EngineMetrics.unregisterGauge("test_10.queue");
+        assertFalse(EngineMetrics.snapshot().getHistograms().containsKey("test_10.db.load"));
+        assertFalse(EngineMetrics.snapshot().getGauges().containsKey("test_10.queue"));
+    }
+
+    @Test
+    public void testStopReportingDisablesMetrics() {
+        EngineMetrics.startReporting(60000, new MetricsListener() {
+            @Override
+            public void onMetrics(MetricsSnapshot snapshot) {
+
+            }
+        });
+        assertTrue(EngineMetrics.isEnabled());
+        EngineMetrics.stopReporting();
+        assertFalse(EngineMetrics.isEnabled());
+        assertEquals(0, EngineMetrics.startTime());
+    }
+
+    private static class ConstGauge implements Gauge {
+        private final long value;
+
+        private ConstGauge(long value) {
+            this.value = value;
+        }
+
+        @Override
+        public long value() {
+            return value;
+        }
+    }
+}
@@ -1,17 +1,49 @@
 package com.droidkit.engine;
 
 import com.droidkit.actors.ActorSystem;
-import com.droidkit.actors.android.UiActorDispatcher;
 import com.droidkit.actors.mailbox.ActorDispatcher;
+import com.droidkit.engine.platform.Platform;
 
 /**
  * Engine library initialization.
  */
 public class Engines {
 
+    /**
+     * Dispatcher of all database writes, single thread, so writes are serialized
+     */
+    public static final String DB_WRITE_DISPATCHER = "db";
+
+    /**
+     * Dispatcher of database reads, reads of different engines are executed in parallel
+     */
+    public static final String DB_READ_DISPATCHER = "db_read";
+
     private static volatile boolean isInited = false;
     private static Object initLock = new Object();
 
+    private static int readerThreads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    private static int readerPriority = Thread.NORM_PRIORITY;
+    private static int writerPriority = Thread.MIN_PRIORITY;
+
+    /**
+     * Configure database dispatchers, should be called before creation of first engine
+     *
+     * @param readerThreads  number of threads of reader pool
+     * @param readerPriority priority of reader threads, reads usually block ui content
+     * @param writerPriority priority of writer thread
+     */
+    public static void configure(int readerThreads, int readerPriority, int writerPriority) {
+        synchronized (initLock) {
+            if (isInited) {
+                throw new IllegalStateException("Engines are already initialized");
+            }
+            Engines.readerThreads = Math.max(readerThreads, 1);
+            Engines.readerPriority = readerPriority;
+            Engines.writerPriority = writerPriority;
+        }
+    }
+
     /**
      * Pefrorm initialization\
      */
@@ -20,8 +52,9 @@ public class Engines {
             synchronized (initLock) {
                 if (!isInited) {
                     isInited = true;
-                    ActorSystem.system().addDispatcher("db", new ActorDispatcher(ActorSystem.system(), 1, Thread.MIN_PRIORITY));
-                    ActorSystem.system().addDispatcher("ui", new UiActorDispatcher(ActorSystem.system()));
+                    ActorSystem.system().addDispatcher(DB_WRITE_DISPATCHER, new ActorDispatcher(ActorSystem.system(), 1, writerPriority));
+                    ActorSystem.system().addDispatcher(DB_READ_DISPATCHER, new ActorDispatcher(ActorSystem.system(), readerThreads, readerPriority));
+                    ActorSystem.system().addDispatcher("ui", Platform.get().createMainThreadDispatcher(ActorSystem.system()));
                 }
             }
         }
@@ -0,0 +1,138 @@
+package com.droidkit.engine._internal;
+
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Queue of writes of all engines sharing one transaction scope, e.g. one SQLite database.
+ * All writes queued at the moment db actor gets to them are executed in one transaction,
+ * so writers of all engines share single commit. If group fails, its writes are retried one by one
+ * in transactions of their own engines, so one broken write doesn't fail others.
+ * Writes to non transactional storages are executed one by one from the start,
+ * as part of failed group could be already written.
+ */
+class CommitLane {
+
+    private static final WeakHashMap<Object, CommitLane> LANES = new WeakHashMap<Object, CommitLane>();
+
+    /**
+     * @return lane shared by all committers with the same scope
+     */
+    static synchronized CommitLane forScope(Object scope) {
+        CommitLane lane = LANES.get(scope);
+        if (lane == null) {
+            lane = new CommitLane();
+            LANES.put(scope, lane);
+        }
+        return lane;
+    }
+
+    private final ConcurrentLinkedQueue<Write> queue = new ConcurrentLinkedQueue<Write>();
+
+    private final AtomicBoolean isCommitScheduled = new AtomicBoolean(false);
+
+    /**
+     * Queue write and schedule commit in db actor of committer
+     */
+    void submit(GroupCommitter committer, Runnable write, PendingCommit handle) {
+        queue.add(new Write(committer, write, handle));
+        if (isCommitScheduled.compareAndSet(false, true)) {
+            committer.getDbActor().send(new Runnable() {
+                @Override
+                public void run() {
+                    isCommitScheduled.set(false);
+                    commitPending();
+                }
+            });
+        }
+    }
+
+    /**
+     * Execute all queued writes of all committers, called only in db actors
+     */
+    synchronized void commitPending() {
+        final ArrayList<Write> group = new ArrayList<Write>();
+        Write write;
+        while ((write = queue.poll()) != null) {
+            group.add(write);
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+
+        try {
+            commitGroup(group);
+        } finally {
+            for (Write w : group) {
+                if (!w.isFinished) {
+                    finish(w, new RuntimeException("Write was not executed"));
+                }
+            }
+        }
+    }
+
+    private void commitGroup(final ArrayList<Write> group) {
+        if (!group.get(0).committer.isTransactional()) {
+            commitOneByOne(group);
+            return;
+        }
+        try {
+            group.get(0).committer.runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    for (Write w : group) {
+                        w.write.run();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                finish(group.get(0), e);
+                return;
+            }
+            commitOneByOne(group);
+            return;
+        }
+
+        for (Write w : group) {
+            finish(w, null);
+        }
+    }
+
+    private void commitOneByOne(ArrayList<Write> group) {
+        for (Write w : group) {
+            try {
+                w.committer.runInTransaction(w.write);
+                finish(w, null);
+            } catch (Exception e) {
+                e.printStackTrace();
+                finish(w, e);
+            }
+        }
+    }
+
+    /**
+     * Count write as committed before resolving its handle, so code waiting for handle
+     * doesn't see it as uncommitted
+     */
+    private static void finish(Write w, Exception error) {
+        w.isFinished = true;
+        w.committer.onCommitted();
+        w.handle.complete(error);
+    }
+
+    private static class Write {
+        private final GroupCommitter committer;
+        private final Runnable write;
+        private final PendingCommit handle;
+        private boolean isFinished = false;
+
+        private Write(GroupCommitter committer, Runnable write, PendingCommit handle) {
+            this.committer = committer;
+            this.write = write;
+            this.handle = handle;
+        }
+    }
+}
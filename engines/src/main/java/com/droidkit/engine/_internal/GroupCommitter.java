@@ -0,0 +1,114 @@
+package com.droidkit.engine._internal;
+
+import com.droidkit.actors.ActorRef;
+import com.droidkit.engine.common.CommitHandle;
+import com.droidkit.engine.common.TransactionalStorage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of engine writes executed in db actor.
+ * Writes are queued to commit lane of engine storage: engines with storages in the same
+ * transaction scope (see {@link TransactionScope}) share one lane, so writes of all of them
+ * queued at the moment db actor gets to them are executed in one transaction.
+ * If group fails, its writes are retried one by one, so one broken write doesn't fail others.
+ * Writes to storages not implementing {@link TransactionalStorage} are never grouped.
+ */
+public abstract class GroupCommitter {
+
+    private final ActorRef dbActor;
+
+    private final CommitLane lane;
+
+    private final boolean isTransactional;
+
+    /**
+     * Number of submitted writes of this committer that are not committed yet
+     */
+    private final AtomicInteger uncommittedCount = new AtomicInteger(0);
+
+    /**
+     * @param dbActor db actor of engine
+     * @param storage storage of engine before any wrapping, engines with storages of the same
+     *                {@link TransactionScope} share commits, other storages get own lane
+     */
+    public GroupCommitter(ActorRef dbActor, Object storage) {
+        this.dbActor = dbActor;
+        this.lane = CommitLane.forScope(storage instanceof TransactionScope
+                ? ((TransactionScope) storage).getTransactionScope() : storage);
+        this.isTransactional = storage instanceof TransactionalStorage;
+    }
+
+    /**
+     * Run runnable in one storage transaction, or just run it if storage is not transactional
+     */
+    protected abstract void runInTransaction(Runnable runnable);
+
+    public CommitHandle submit(Runnable write) {
+        return submit(write, new PendingCommit());
+    }
+
+    /**
+     * Queue write and schedule commit in db actor
+     *
+     * @param write  write to storage
+     * @param handle handle resolved after commit
+     * @return handle
+     */
+    public CommitHandle submit(Runnable write, PendingCommit handle) {
+        uncommittedCount.incrementAndGet();
+        lane.submit(this, write, handle);
+        return handle;
+    }
+
+    /**
+     * @return true if some submitted writes are not committed yet
+     */
+    public boolean hasUncommitted() {
+        return uncommittedCount.get() > 0;
+    }
+
+    /**
+     * @return number of submitted writes that are not committed yet
+     */
+    public int getUncommittedCount() {
+        return uncommittedCount.get();
+    }
+
+    /**
+     * Run read in reader actor after all writes submitted before are committed
+     */
+    public void read(final ActorRef reader, final Runnable read) {
+        if (!hasUncommitted()) {
+            reader.send(read);
+            return;
+        }
+        dbActor.send(new Runnable() {
+            @Override
+            public void run() {
+                commitPending();
+                reader.send(read);
+            }
+        });
+    }
+
+    /**
+     * Execute all queued writes of lane, called only in db actor.
+     * Should be called before reading from storage in db actor.
+     */
+    public void commitPending() {
+        lane.commitPending();
+    }
+
+    boolean isTransactional() {
+        return isTransactional;
+    }
+
+    ActorRef getDbActor() {
+        return dbActor;
+    }
+
+    void onCommitted() {
+        uncommittedCount.decrementAndGet();
+    }
+}
@@ -0,0 +1,23 @@
+package com.droidkit.engine._internal;
+
+import com.droidkit.engine.common.CommitHandle;
+
+/**
+ * CommitHandle that can be resolved by engines
+ */
+public class PendingCommit extends CommitHandle {
+
+    /**
+     * @return handle that is already committed
+     */
+    public static PendingCommit committed() {
+        final PendingCommit res = new PendingCommit();
+        res.complete(null);
+        return res;
+    }
+
+    @Override
+    public void complete(Exception error) {
+        super.complete(error);
+    }
+}
@@ -0,0 +1,13 @@
+package com.droidkit.engine._internal;
+
+/**
+ * Storage whose transactions are shared with other storages, e.g. all tables of one SQLite database.
+ * Writes of engines with the same scope are committed together by one commit lane.
+ */
+public interface TransactionScope {
+
+    /**
+     * @return object identifying transaction, engines with equal scopes share commits
+     */
+    Object getTransactionScope();
+}
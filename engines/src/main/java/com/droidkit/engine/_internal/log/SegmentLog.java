@@ -0,0 +1,840 @@
+package com.droidkit.engine._internal.log;
+
+import com.droidkit.engine._internal.util.PersistentSortedList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of items split to memory mapped segment files.
+ * <p>
+ * Every modification is appended as record (crc, length, type, id, sortKey, bytes), crc covers the rest
+ * of record. Position of the latest record of every item is kept in memory, ordered by (sortKey, id).
+ * On opening, index is rebuilt by scanning all segments, scan of segment stops at first broken record.
+ * <p>
+ * Records written in transaction are flagged and are applied on recovery only if they are followed by
+ * commit record, so transactions and batches are atomic. Rolled back records are erased, so log always
+ * ends with zeros, and index is restored from undo records of transaction.
+ * <p>
+ * When more than half of bytes of sealed segments belong to superseded records, oldest segments are
+ * compacted in background thread: their live records are appended to the head and files are deleted.
+ * Only the oldest segment is compacted, so deletions never resurrect records of older segments.
+ * Sealed segments are immutable, so compaction reads them and flushes copies without holding the lock.
+ */
+public class SegmentLog {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final int MAGIC = 0x4C4F4753;
+
+    private static final int VERSION = 1;
+
+    private static final int SEGMENT_HEADER = 8;
+
+    /**
+     * crc, length, type, id, sortKey
+     */
+    private static final int RECORD_HEADER = 4 + 4 + 1 + 8 + 8;
+
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_CLEAR = 3;
+    private static final byte TYPE_COMMIT = 4;
+
+    /**
+     * Record of transaction, applied only if it is followed by commit record
+     */
+    private static final byte FLAG_TX = 0x10;
+
+    private static final String SEGMENT_PREFIX = "segment_";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Share of superseded bytes in sealed segments that starts compaction
+     */
+    private static final float COMPACTION_THRESHOLD = 0.5f;
+
+    private static final Comparator<Location> ORDER = new Comparator<Location>() {
+        @Override
+        public int compare(Location lhs, Location rhs) {
+            if (lhs.sortKey != rhs.sortKey) {
+                return lhs.sortKey < rhs.sortKey ? -1 : 1;
+            }
+            if (lhs.id != rhs.id) {
+                return lhs.id < rhs.id ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    private static ExecutorService compactionExecutor;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    /**
+     * Segments ordered by sequence number, the last one is head for appending
+     */
+    private final ArrayList<Segment> segments = new ArrayList<Segment>();
+
+    private HashMap<Long, Location> locations = new HashMap<Long, Location>();
+
+    private PersistentSortedList<Location> index = PersistentSortedList.empty();
+
+    private final LinkedHashSet<Segment> dirtySegments = new LinkedHashSet<Segment>();
+
+    private final CRC32 crc = new CRC32();
+
+    private byte[] scratch = new byte[256];
+
+    private int txDepth = 0;
+
+    private Segment txStartSegment;
+
+    private int txStartOffset;
+
+    private boolean txHasRecords;
+
+    /**
+     * Index at the start of transaction, restored on rollback
+     */
+    private PersistentSortedList<Location> txStartIndex;
+
+    /**
+     * Previous locations of items changed in transaction in order of changes
+     */
+    private final ArrayList<Undo> txUndo = new ArrayList<Undo>();
+
+    private boolean isCompactionScheduled = false;
+
+    public SegmentLog(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open log in directory, recovering it after crash if needed
+     *
+     * @param directory   directory of segment files, created if it doesn't exist
+     * @param segmentSize size of segment file, bigger records get their own segment
+     */
+    public SegmentLog(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, SEGMENT_HEADER + RECORD_HEADER);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new RuntimeException("Unable to create " + directory);
+        }
+        synchronized (this) {
+            load();
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    public synchronized boolean contains(long id) {
+        return locations.containsKey(id);
+    }
+
+    /**
+     * @return item or null if there are no item with id
+     */
+    public synchronized Item get(long id) {
+        final Location location = locations.get(id);
+        return location == null ? null : read(location);
+    }
+
+    /**
+     * @return items with specified ids in the same order, ids without items are skipped
+     */
+    public synchronized ArrayList<Item> getAll(long[] ids) {
+        final ArrayList<Item> res = new ArrayList<Item>(ids.length);
+        for (long id : ids) {
+            final Location location = locations.get(id);
+            if (location != null) {
+                res.add(read(location));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @param offset number of skipped items
+     * @param limit  maximum number of items, negative for no limit
+     * @param asc    order by (sortKey, id) ascending or descending
+     */
+    public synchronized ArrayList<Item> slice(int offset, int limit, boolean asc) {
+        final ArrayList<Item> res = new ArrayList<Item>();
+        final int size = index.size();
+        for (int i = Math.max(offset, 0); i < size && !isFull(res, limit); i++) {
+            res.add(read(index.get(asc ? i : size - 1 - i)));
+        }
+        return res;
+    }
+
+    /**
+     * Items following (sortKey, id) in specified order
+     */
+    public synchronized ArrayList<Item> sliceAfter(long sortKey, long id, int limit, boolean asc) {
+        final ArrayList<Item> res = new ArrayList<Item>();
+        final int size = index.size();
+        final int rank = index.rank(sortKey, id);
+        if (asc) {
+            int from = rank;
+            if (from < size && index.getSortKey(from) == sortKey && index.getId(from) == id) {
+                from++;
+            }
+            for (int i = from; i < size && !isFull(res, limit); i++) {
+                res.add(read(index.get(i)));
+            }
+        } else {
+            for (int i = rank - 1; i >= 0 && !isFull(res, limit); i--) {
+                res.add(read(index.get(i)));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Items with sort keys in [fromSortKey, toSortKey] ordered by (sortKey, id) ascending
+     */
+    public synchronized ArrayList<Item> range(long fromSortKey, long toSortKey) {
+        final ArrayList<Item> res = new ArrayList<Item>();
+        final int to = index.upperBound(toSortKey);
+        for (int i = index.lowerBound(fromSortKey); i < to; i++) {
+            res.add(read(index.get(i)));
+        }
+        return res;
+    }
+
+    public synchronized ArrayList<Item> all() {
+        return slice(0, -1, true);
+    }
+
+    private static boolean isFull(ArrayList<Item> res, int limit) {
+        return limit >= 0 && res.size() >= limit;
+    }
+
+    private Item read(Location location) {
+        final byte[] bytes = new byte[location.length];
+        final ByteBuffer src = location.segment.buffer.duplicate();
+        src.position(location.offset + RECORD_HEADER);
+        src.get(bytes);
+        return new Item(location.id, location.sortKey, bytes);
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    /**
+     * Insert or replace item
+     */
+    public synchronized void put(long id, long sortKey, byte[] bytes) {
+        applyPut(append(TYPE_PUT, id, sortKey, bytes));
+        afterWrite();
+    }
+
+    /**
+     * @return true if item was removed
+     */
+    public synchronized boolean remove(long id) {
+        if (!locations.containsKey(id)) {
+            return false;
+        }
+        append(TYPE_DELETE, id, 0, null);
+        applyRemove(id);
+        afterWrite();
+        return true;
+    }
+
+    public synchronized void clear() {
+        append(TYPE_CLEAR, 0, 0, null);
+        applyClear();
+        afterWrite();
+    }
+
+    /**
+     * Run all modifications made by runnable atomically: if runnable throws exception,
+     * all its modifications are rolled back. Nested transactions join outer one.
+     */
+    public synchronized void runInTransaction(Runnable runnable) {
+        if (txDepth == 0) {
+            txStartSegment = head();
+            txStartOffset = txStartSegment.end;
+            txHasRecords = false;
+            txStartIndex = index;
+        }
+        txDepth++;
+        boolean isSuccessful = false;
+        try {
+            runnable.run();
+            isSuccessful = true;
+        } finally {
+            txDepth--;
+            if (txDepth == 0) {
+                if (isSuccessful) {
+                    if (txHasRecords) {
+                        append(TYPE_COMMIT, 0, 0, null);
+                    }
+                    txUndo.clear();
+                    txStartIndex = null;
+                    txStartSegment = null;
+                    afterWrite();
+                } else {
+                    rollback();
+                }
+            }
+        }
+    }
+
+    private Location append(byte type, long id, long sortKey, byte[] bytes) {
+        final int length = bytes == null ? 0 : bytes.length;
+        final int size = RECORD_HEADER + length;
+        Segment head = head();
+        if (head.end + size > head.capacity) {
+            head = createSegment(head.seq + 1, Math.max(segmentSize, SEGMENT_HEADER + size));
+            segments.add(head);
+        }
+        if (txDepth > 0) {
+            type |= FLAG_TX;
+            txHasRecords = true;
+        }
+
+        final byte[] record = new byte[size];
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(0);
+        buffer.putInt(length);
+        buffer.put(type);
+        buffer.putLong(id);
+        buffer.putLong(sortKey);
+        if (bytes != null) {
+            buffer.put(bytes);
+        }
+        crc.reset();
+        crc.update(record, 4, size - 4);
+        buffer.putInt(0, (int) crc.getValue());
+
+        final ByteBuffer dst = head.buffer.duplicate();
+        dst.position(head.end);
+        dst.put(record);
+
+        final Location location = new Location(head, head.end, length, id, sortKey);
+        head.end += size;
+        dirtySegments.add(head);
+        return location;
+    }
+
+    private void applyPut(Location location) {
+        final Location old = locations.put(location.id, location);
+        if (txDepth > 0) {
+            txUndo.add(new Undo(location.id, old));
+        }
+        if (old != null) {
+            old.segment.live -= old.size();
+            index = index.remove(old.sortKey, old.id);
+        }
+        location.segment.live += location.size();
+        index = index.put(location.sortKey, location.id, location);
+    }
+
+    private void applyRemove(long id) {
+        final Location old = locations.remove(id);
+        if (old != null) {
+            if (txDepth > 0) {
+                txUndo.add(new Undo(id, old));
+            }
+            old.segment.live -= old.size();
+            index = index.remove(old.sortKey, old.id);
+        }
+    }
+
+    private void applyClear() {
+        if (txDepth > 0) {
+            for (Location location : locations.values()) {
+                txUndo.add(new Undo(location.id, location));
+            }
+        }
+        locations.clear();
+        index = PersistentSortedList.empty();
+        for (Segment segment : segments) {
+            segment.live = 0;
+        }
+    }
+
+    /**
+     * Flush written records to disk if there are no open transaction
+     */
+    private void afterWrite() {
+        if (txDepth > 0) {
+            return;
+        }
+        for (Segment segment : dirtySegments) {
+            segment.buffer.force();
+        }
+        dirtySegments.clear();
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Restore index from undo records and erase records of failed transaction
+     */
+    private void rollback() {
+        for (int i = txUndo.size() - 1; i >= 0; i--) {
+            final Undo undo = txUndo.get(i);
+            final Location current;
+            if (undo.previous != null) {
+                current = locations.put(undo.id, undo.previous);
+                undo.previous.segment.live += undo.previous.size();
+            } else {
+                current = locations.remove(undo.id);
+            }
+            if (current != null) {
+                current.segment.live -= current.size();
+            }
+        }
+        txUndo.clear();
+        index = txStartIndex;
+        txStartIndex = null;
+
+        while (head() != txStartSegment) {
+            final Segment segment = segments.remove(segments.size() - 1);
+            dirtySegments.remove(segment);
+            delete(segment);
+        }
+        zero(txStartSegment, txStartOffset, txStartSegment.end);
+        txStartSegment.end = txStartOffset;
+        txStartSegment.buffer.force();
+        dirtySegments.clear();
+        txStartSegment = null;
+    }
+
+    // ---------------------------------------------------------------- compaction
+
+    private void scheduleCompactionIfNeeded() {
+        if (isCompactionScheduled || !isCompactionNeeded()) {
+            return;
+        }
+        isCompactionScheduled = true;
+        getCompactionExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                compact();
+            }
+        });
+    }
+
+    private boolean isCompactionNeeded() {
+        long used = 0;
+        long live = 0;
+        for (int i = 0; i < segments.size() - 1; i++) {
+            final Segment segment = segments.get(i);
+            used += segment.end - SEGMENT_HEADER;
+            live += segment.live;
+        }
+        return used > 0 && used - live > used * COMPACTION_THRESHOLD;
+    }
+
+    void compact() {
+        synchronized (this) {
+            isCompactionScheduled = false;
+        }
+        while (compactOldest()) {
+            // Next oldest segment
+        }
+    }
+
+    /**
+     * Move live records of the oldest segment to head and delete it.
+     * Lock is held only to find live records and to append copies that are still live,
+     * records are read and copies are flushed to disk without lock.
+     *
+     * @return false if compaction is not needed
+     */
+    private boolean compactOldest() {
+        final Segment oldest;
+        final int end;
+        synchronized (this) {
+            if (txDepth > 0 || !isCompactionNeeded()) {
+                return false;
+            }
+            oldest = segments.get(0);
+            end = oldest.end;
+        }
+
+        // Sealed segment is never written, its records are scanned without lock
+        final ArrayList<Location> puts = new ArrayList<Location>();
+        for (int pos = SEGMENT_HEADER; pos < end; ) {
+            final int length = oldest.buffer.getInt(pos + 4);
+            if ((oldest.buffer.get(pos + 8) & ~FLAG_TX) == TYPE_PUT) {
+                puts.add(new Location(oldest, pos, length, oldest.buffer.getLong(pos + 9),
+                        oldest.buffer.getLong(pos + 17)));
+            }
+            pos += RECORD_HEADER + length;
+        }
+
+        final ArrayList<Location> live = new ArrayList<Location>();
+        synchronized (this) {
+            for (Location put : puts) {
+                final Location location = locations.get(put.id);
+                if (location != null && location.segment == oldest && location.offset == put.offset) {
+                    live.add(location);
+                }
+            }
+        }
+
+        final ArrayList<Item> items = new ArrayList<Item>(live.size());
+        for (Location location : live) {
+            items.add(read(location));
+        }
+
+        final ArrayList<Segment> written;
+        synchronized (this) {
+            for (int i = 0; i < live.size(); i++) {
+                // Items changed while copying already have newer records
+                if (locations.get(live.get(i).id) == live.get(i)) {
+                    final Item item = items.get(i);
+                    applyPut(append(TYPE_PUT, item.getId(), item.getSortKey(), item.getBytes()));
+                }
+            }
+            written = new ArrayList<Segment>(dirtySegments);
+            dirtySegments.clear();
+        }
+
+        // Segment is deleted only after its copies are on disk
+        for (Segment segment : written) {
+            segment.buffer.force();
+        }
+
+        synchronized (this) {
+            if (segments.get(0) == oldest) {
+                segments.remove(0);
+                delete(oldest);
+            }
+        }
+        return true;
+    }
+
+    private static synchronized ExecutorService getCompactionExecutor() {
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "segment_log_compaction");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return compactionExecutor;
+    }
+
+    // ---------------------------------------------------------------- recovery
+
+    /**
+     * Open all segments and rebuild index by scanning them
+     */
+    private void load() {
+        segments.clear();
+        locations = new HashMap<Long, Location>();
+
+        final ArrayList<Long> seqs = new ArrayList<Long>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        seqs.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            }
+        }
+        Collections.sort(seqs);
+
+        final ArrayList<Location> pending = new ArrayList<Location>();
+        final ArrayList<Byte> pendingTypes = new ArrayList<Byte>();
+        for (Long seq : seqs) {
+            final Segment segment = openSegment(seq);
+            if (segment == null) {
+                segmentFile(seq).delete();
+                continue;
+            }
+            segments.add(segment);
+            scan(segment, pending, pendingTypes);
+        }
+
+        if (!pending.isEmpty()) {
+            // Transaction without commit record: erase it
+            final Location first = pending.get(0);
+            while (head() != first.segment) {
+                delete(segments.remove(segments.size() - 1));
+            }
+            first.segment.end = first.offset;
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(createSegment(seqs.isEmpty() ? 0 : seqs.get(seqs.size() - 1) + 1, segmentSize));
+        }
+
+        final Segment head = head();
+        if (!isZero(head, head.end, head.capacity)) {
+            zero(head, head.end, head.capacity);
+            head.buffer.force();
+        }
+
+        final Location[] sorted = locations.values().toArray(new Location[locations.size()]);
+        Arrays.sort(sorted, ORDER);
+        final long[] sortKeys = new long[sorted.length];
+        final long[] ids = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortKeys[i] = sorted[i].sortKey;
+            ids[i] = sorted[i].id;
+            sorted[i].segment.live += sorted[i].size();
+        }
+        index = PersistentSortedList.fromSorted(sortKeys, ids, sorted, sorted.length);
+    }
+
+    private void scan(Segment segment, ArrayList<Location> pending, ArrayList<Byte> pendingTypes) {
+        final MappedByteBuffer buffer = segment.buffer;
+        int pos = SEGMENT_HEADER;
+        while (pos + RECORD_HEADER <= segment.capacity) {
+            final int storedCrc = buffer.getInt(pos);
+            final int length = buffer.getInt(pos + 4);
+            final byte type = buffer.get(pos + 8);
+            if (type == 0 || length < 0 || length > segment.capacity - pos - RECORD_HEADER) {
+                break;
+            }
+            if (checksum(buffer, pos + 4, RECORD_HEADER - 4 + length) != storedCrc) {
+                break;
+            }
+            final Location location = new Location(segment, pos, length, buffer.getLong(pos + 9),
+                    buffer.getLong(pos + 17));
+            if ((type & FLAG_TX) != 0) {
+                pending.add(location);
+                pendingTypes.add((byte) (type & ~FLAG_TX));
+            } else if (type == TYPE_COMMIT) {
+                for (int i = 0; i < pending.size(); i++) {
+                    recover(pendingTypes.get(i), pending.get(i));
+                }
+                pending.clear();
+                pendingTypes.clear();
+            } else {
+                recover(type, location);
+            }
+            pos += RECORD_HEADER + length;
+        }
+        segment.end = pos;
+    }
+
+    private void recover(byte type, Location location) {
+        switch (type) {
+            case TYPE_PUT:
+                locations.put(location.id, location);
+                break;
+            case TYPE_DELETE:
+                locations.remove(location.id);
+                break;
+            case TYPE_CLEAR:
+                locations.clear();
+                break;
+        }
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        final ByteBuffer src = buffer.duplicate();
+        src.position(offset);
+        src.get(scratch, 0, length);
+        crc.reset();
+        crc.update(scratch, 0, length);
+        return (int) crc.getValue();
+    }
+
+    // ---------------------------------------------------------------- segments
+
+    private Segment head() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private File segmentFile(long seq) {
+        return new File(directory, SEGMENT_PREFIX + seq + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @return segment or null if file is not a valid segment
+     */
+    private Segment openSegment(long seq) {
+        final File file = segmentFile(seq);
+        final MappedByteBuffer buffer = map(file, -1);
+        if (buffer.capacity() < SEGMENT_HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return null;
+        }
+        return new Segment(seq, file, buffer);
+    }
+
+    private Segment createSegment(long seq, int capacity) {
+        final File file = segmentFile(seq);
+        final MappedByteBuffer buffer = map(file, capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.force();
+        return new Segment(seq, file, buffer);
+    }
+
+    /**
+     * @param capacity size of new file or -1 to map existing file
+     */
+    private static MappedByteBuffer map(File file, int capacity) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            if (capacity >= 0) {
+                raf.setLength(capacity);
+            }
+            // Mapping stays valid after file is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to map " + file, e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void delete(Segment segment) {
+        if (!segment.file.delete()) {
+            segment.file.deleteOnExit();
+        }
+    }
+
+    private static boolean isZero(Segment segment, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (segment.buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void zero(Segment segment, int from, int to) {
+        final byte[] zeros = new byte[Math.min(Math.max(to - from, 0), 4096)];
+        final ByteBuffer dst = segment.buffer.duplicate();
+        dst.position(from);
+        while (dst.position() < to) {
+            dst.put(zeros, 0, Math.min(zeros.length, to - dst.position()));
+        }
+    }
+
+    private static class Segment {
+        private final long seq;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+
+        /**
+         * End of the last record
+         */
+        private int end = SEGMENT_HEADER;
+
+        /**
+         * Size of records that are not superseded
+         */
+        private int live = 0;
+
+        private Segment(long seq, File file, MappedByteBuffer buffer) {
+            this.seq = seq;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+    }
+
+    /**
+     * Location of item before its change in transaction, null if item didn't exist
+     */
+    private static class Undo {
+        private final long id;
+        private final Location previous;
+
+        private Undo(long id, Location previous) {
+            this.id = id;
+            this.previous = previous;
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final long id;
+        private final long sortKey;
+
+        private Location(Segment segment, int offset, int length, long id, long sortKey) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.id = id;
+            this.sortKey = sortKey;
+        }
+
+        private int size() {
+            return RECORD_HEADER + length;
+        }
+    }
+
+    /**
+     * Item read from log
+     */
+    public static class Item {
+        private final long id;
+        private final long sortKey;
+        private final byte[] bytes;
+
+        private Item(long id, long sortKey, byte[] bytes) {
+            this.id = id;
+            this.sortKey = sortKey;
+            this.bytes = bytes;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getSortKey() {
+            return sortKey;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -7,16 +7,35 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractDao<V> {
 
     protected static final String TAG = "AbstractDao";
 
+    /**
+     * Number of rows deserialized by one worker task
+     */
+    private static final int DESERIALIZE_CHUNK = 64;
+
+    private static ExecutorService deserializeExecutor;
+
     public final SQLiteDatabase db;
     public final String tableName;
     public final SqlStatements statements;
     public final BinarySerializator<V> binarySerializator;
 
+    /**
+     * Maximum number of chunks deserialized at the same time, 1 for deserialization in db thread
+     */
+    private volatile int deserializeParallelism = 1;
+
     protected AbstractDao(String tableName, SQLiteDatabase db, SqlStatements statements, BinarySerializator<V> serializator) {
         this.tableName = tableName;
         this.db = db;
@@ -34,6 +53,14 @@ public abstract class AbstractDao<V> {
 
     protected abstract V readEntity(Cursor cursor);
 
+    /**
+     * Index of column with serialized entity, -1 if entity can't be read from single blob.
+     * Entities of blob tables can be deserialized in parallel.
+     */
+    protected int getBytesColumn() {
+        return -1;
+    }
+
     protected abstract void deleteByKeyInsideSynchronized(long id, SQLiteStatement stmt);
 
     public abstract ArrayList<V> getAll();
@@ -159,6 +186,19 @@ public abstract class AbstractDao<V> {
         }
     }
 
+    /**
+     * Run runnable in one transaction, operations of this dao inside it join the same transaction
+     */
+    public void runInTx(Runnable runnable) {
+        db.beginTransaction();
+        try {
+            runnable.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     public void deleteInTx(ArrayList<Long> entities) {
         SQLiteStatement stmt = statements.getDeleteStatement();
         db.beginTransaction();
@@ -176,6 +216,53 @@ public abstract class AbstractDao<V> {
         }
     }
 
+    /**
+     * Connection for reading: pooled read-only connection in WAL mode, so readers don't wait
+     * for writer, or main connection if pool is disabled or current thread is inside transaction.
+     * Must be released with releaseReadDb after closing of cursor.
+     * Pool is looked up on every read, so daos never use pool of reopened database.
+     * Pool can be closed by reopening between lookup and acquiring, main connection is used then.
+     */
+    protected SQLiteDatabase acquireReadDb() {
+        final ReadConnectionPool readPool = DbProvider.getReadPool(db);
+        if (readPool == null || db.isDbLockedByCurrentThread()) {
+            return db;
+        }
+        final SQLiteDatabase readDb = readPool.acquire();
+        return readDb != null ? readDb : db;
+    }
+
+    protected void releaseReadDb(SQLiteDatabase readDb) {
+        if (readDb == db) {
+            return;
+        }
+        final ReadConnectionPool readPool = DbProvider.getReadPool(db);
+        if (readPool != null) {
+            readPool.release(readDb);
+        } else {
+            // Database was reopened and pool of this connection is closed
+            readDb.close();
+        }
+    }
+
+    protected ArrayList<V> queryAll(String sql, String[] args) {
+        final SQLiteDatabase readDb = acquireReadDb();
+        try {
+            return loadAllAndCloseCursor(readDb.rawQuery(sql, args));
+        } finally {
+            releaseReadDb(readDb);
+        }
+    }
+
+    protected V querySingle(String sql, String[] args) {
+        final SQLiteDatabase readDb = acquireReadDb();
+        try {
+            return loadSingleAndCloseCursor(readDb.rawQuery(sql, args));
+        } finally {
+            releaseReadDb(readDb);
+        }
+    }
+
     protected V loadSingleAndCloseCursor(Cursor cursor) {
         try {
             V item = null;
@@ -196,17 +283,40 @@ public abstract class AbstractDao<V> {
         }
     }
 
-    private ArrayList<V> loadAllFromCursor(Cursor cursor) {
-        int count = cursor.getCount();
-        ArrayList<V> list = new ArrayList<V>(count);
+    /**
+     * Replace cursor with FastCursor if all rows are already in its window
+     */
+    protected Cursor toFastCursor(Cursor cursor) {
         if (cursor instanceof CrossProcessCursor) {
             CursorWindow window = ((CrossProcessCursor) cursor).getWindow();
             if (window != null) {
-                if (window.getNumRows() == count) {
-                    cursor = new FastCursor(window);
+                if (window.getNumRows() == cursor.getCount()) {
+                    return new FastCursor(window);
                 }
             }
         }
+        return cursor;
+    }
+
+    /**
+     * Deserialize loaded rows in parallel: blobs are read from cursor in db thread
+     * and deserialized with shared worker pool, result keeps order of rows.
+     *
+     * @param parallelism maximum number of chunks deserialized at the same time, 1 to disable
+     */
+    public void setDeserializeParallelism(int parallelism) {
+        this.deserializeParallelism = Math.max(parallelism, 1);
+    }
+
+    private ArrayList<V> loadAllFromCursor(Cursor cursor) {
+        int count = cursor.getCount();
+        cursor = toFastCursor(cursor);
+        final int parallelism = deserializeParallelism;
+        if (parallelism > 1 && getBytesColumn() >= 0 && count > DESERIALIZE_CHUNK) {
+            return loadAllParallel(cursor, count, parallelism);
+        }
+
+        ArrayList<V> list = new ArrayList<V>(count);
 
         final long start = System.currentTimeMillis();
         if (cursor.moveToFirst()) {
@@ -217,6 +327,78 @@ public abstract class AbstractDao<V> {
         return list;
     }
 
+    private ArrayList<V> loadAllParallel(Cursor cursor, int count, int parallelism) {
+        final ExecutorService executor = getDeserializeExecutor();
+        final int column = getBytesColumn();
+        final ArrayList<V> list = new ArrayList<V>(count);
+        final ArrayList<Future<ArrayList<V>>> inFlight = new ArrayList<Future<ArrayList<V>>>();
+
+        if (cursor.moveToFirst()) {
+            boolean hasNext = true;
+            while (hasNext) {
+                final byte[][] chunk = new byte[DESERIALIZE_CHUNK][];
+                int size = 0;
+                while (hasNext && size < DESERIALIZE_CHUNK) {
+                    chunk[size++] = cursor.isNull(column) ? null : cursor.getBlob(column);
+                    hasNext = cursor.moveToNext();
+                }
+
+                final int chunkSize = size;
+                inFlight.add(executor.submit(new Callable<ArrayList<V>>() {
+                    @Override
+                    public ArrayList<V> call() throws Exception {
+                        ArrayList<V> res = new ArrayList<V>(chunkSize);
+                        for (int i = 0; i < chunkSize; i++) {
+                            res.add(binarySerializator.deserialize(chunk[i]));
+                        }
+                        return res;
+                    }
+                }));
+
+                // Bounded pipeline: wait for oldest chunk before reading too far ahead
+                if (inFlight.size() >= parallelism) {
+                    list.addAll(waitChunk(inFlight.remove(0)));
+                }
+            }
+        }
+
+        for (Future<ArrayList<V>> future : inFlight) {
+            list.addAll(waitChunk(future));
+        }
+        return list;
+    }
+
+    private ArrayList<V> waitChunk(Future<ArrayList<V>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService getDeserializeExecutor() {
+        if (deserializeExecutor == null) {
+            final AtomicInteger nextThreadId = new AtomicInteger(1);
+            deserializeExecutor = Executors.newFixedThreadPool(
+                    Math.max(Runtime.getRuntime().availableProcessors(), 2), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "dao_deserialize_" + nextThreadId.getAndIncrement());
+                            thread.setDaemon(true);
+                            thread.setPriority(Thread.MIN_PRIORITY);
+                            return thread;
+                        }
+                    });
+        }
+        return deserializeExecutor;
+    }
+
     private V loadCurrent(Cursor cursor) {
         V entity = readEntity(cursor);
         return entity;
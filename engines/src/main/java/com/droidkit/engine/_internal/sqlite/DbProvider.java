@@ -2,6 +2,7 @@ package com.droidkit.engine._internal.sqlite;
 
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
 
 public class DbProvider {
 
@@ -9,12 +10,52 @@ public class DbProvider {
 
     private static volatile SQLiteDatabase db;
 
+    private static volatile ReadConnectionPool readPool;
+
+    private static int readConnections = 0;
+
+    /**
+     * Open database in WAL mode with pool of read-only connections used by all read paths of daos,
+     * so reads never wait for long write transactions. Requires API 11, ignored on older devices.
+     * Should be called before first getDatabase.
+     *
+     * @param connections number of read connections, 0 to use default rollback journal
+     */
+    public synchronized static void setWriteAheadLogging(int connections) {
+        if (db != null) {
+            throw new IllegalStateException("Database is already opened");
+        }
+        readConnections = Math.max(connections, 0);
+    }
+
     public synchronized static SQLiteDatabase getDatabase(final Context context) {
         if (db == null || !db.isOpen()) {
             DbHelper helper = new DbHelper(context.getApplicationContext(), DB_NAME, null);
-            db = helper.getWritableDatabase();
+            SQLiteDatabase database = helper.getWritableDatabase();
+            if (readPool != null) {
+                // Connections of previous database are closed, daos of it fall back to their main connection
+                readPool.close();
+                readPool = null;
+            }
+            if (readConnections > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                if (database.enableWriteAheadLogging()) {
+                    readPool = new ReadConnectionPool(database, readConnections);
+                }
+            }
+            db = database;
         }
         return db;
     }
 
+    /**
+     * @return pool of read connections of database or null if database is not opened in WAL mode
+     */
+    public static ReadConnectionPool getReadPool(SQLiteDatabase database) {
+        final ReadConnectionPool pool = readPool;
+        if (database != null && pool != null && pool.getDatabase() == database) {
+            return pool;
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,89 @@
+package com.droidkit.engine._internal.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of read-only connections to database in WAL mode.
+ * In WAL mode readers see last committed data and never wait for writer.
+ * Connections are opened lazily, when all connections are busy reader waits for free one.
+ * Pool is closed when its database is reopened, connections released after that are closed too.
+ */
+public class ReadConnectionPool {
+
+    private final SQLiteDatabase database;
+
+    private final String path;
+
+    private final int maxSize;
+
+    private final ArrayList<SQLiteDatabase> free = new ArrayList<SQLiteDatabase>();
+
+    private int openedCount = 0;
+
+    private boolean isClosed = false;
+
+    public ReadConnectionPool(SQLiteDatabase database, int maxSize) {
+        this.database = database;
+        this.path = database.getPath();
+        this.maxSize = Math.max(maxSize, 1);
+    }
+
+    /**
+     * @return main connection of database this pool reads from
+     */
+    public SQLiteDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Take free connection, waiting for one if all connections are busy
+     *
+     * @return connection or null if pool is closed before or while waiting,
+     * e.g. because database was reopened after pool lookup
+     */
+    public synchronized SQLiteDatabase acquire() {
+        while (!isClosed && free.isEmpty() && openedCount >= maxSize) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        if (isClosed) {
+            return null;
+        }
+        if (!free.isEmpty()) {
+            return free.remove(free.size() - 1);
+        }
+        final SQLiteDatabase connection = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+        openedCount++;
+        return connection;
+    }
+
+    public synchronized void release(SQLiteDatabase connection) {
+        if (isClosed) {
+            connection.close();
+            openedCount--;
+            return;
+        }
+        free.add(connection);
+        notify();
+    }
+
+    /**
+     * Close free connections, connections in use are closed on release.
+     * Waiting readers get null.
+     */
+    public synchronized void close() {
+        isClosed = true;
+        for (SQLiteDatabase connection : free) {
+            connection.close();
+        }
+        openedCount -= free.size();
+        free.clear();
+        notifyAll();
+    }
+}
@@ -0,0 +1,324 @@
+package com.droidkit.engine._internal.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent map with primitive long keys.
+ * Map is split to independently locked segments, every segment is open-addressing hash table
+ * with linear probing, so keys are never boxed and no node is allocated per entry.
+ * Lookups don't take locks: table is published through volatile field and every segment
+ * keeps version that is changed by writes moving entries, lookup is retried under lock
+ * only if it overlaps such write.
+ * Null values are not supported.
+ */
+public class ConcurrentLongHashMap<V> {
+
+    private static final int DEFAULT_CONCURRENCY = 16;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+
+    private final int segmentShift;
+
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_CAPACITY * DEFAULT_CONCURRENCY, DEFAULT_CONCURRENCY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongHashMap(int expectedSize, int concurrencyLevel) {
+        int segmentsCount = 1;
+        int shift = 32;
+        while (segmentsCount < concurrencyLevel) {
+            segmentsCount <<= 1;
+            shift--;
+        }
+        this.segmentShift = shift;
+        this.segments = new Segment[segmentsCount];
+        int segmentCapacity = Math.max(expectedSize / segmentsCount, DEFAULT_CAPACITY);
+        for (int i = 0; i < segmentsCount; i++) {
+            segments[i] = new Segment<V>(segmentCapacity);
+        }
+    }
+
+    public V get(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return previous value or null
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * @return removed value or null
+     */
+    public V remove(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * Remove entry only if it is mapped to given value
+     *
+     * @return true if entry was removed
+     */
+    public boolean remove(long key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> s : segments) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (Segment<V> s : segments) {
+            s.clear();
+        }
+    }
+
+    /**
+     * @return copy of all values, consistent for every segment separately
+     */
+    public ArrayList<V> values() {
+        ArrayList<V> res = new ArrayList<V>(size());
+        for (Segment<V> s : segments) {
+            s.copyValues(res);
+        }
+        return res;
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private static int hash(long key) {
+        // Fibonacci hashing: high bits are well mixed and used for segment selection
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Segment<V> {
+
+        private static final float LOAD_FACTOR = 0.66f;
+
+        /**
+         * Current table, replaced on rehash
+         */
+        private volatile Table table;
+
+        /**
+         * Odd while segment is modified. Readers search without lock and retry under lock
+         * if version was changed during search, so they never see half-moved entries.
+         */
+        private volatile int version;
+
+        private int size;
+        private int threshold;
+
+        Segment(int capacity) {
+            int cap = 1;
+            while (cap < capacity) {
+                cap <<= 1;
+            }
+            allocate(cap);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        V get(long key, int hash) {
+            final int v = version;
+            if ((v & 1) == 0) {
+                final V res = find(table, key, hash);
+                if (version == v) {
+                    return res;
+                }
+            }
+            synchronized (this) {
+                return find(table, key, hash);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V find(Table t, long key, int hash) {
+            int mask = t.capacity - 1;
+            int i = hash & mask;
+            Object value;
+            while ((value = t.values.get(i)) != null) {
+                if (t.keys.get(i) == key) {
+                    return (V) value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V put(long key, int hash, V value) {
+            final Table t = table;
+            int mask = t.capacity - 1;
+            int i = hash & mask;
+            Object current;
+            while ((current = t.values.get(i)) != null) {
+                if (t.keys.get(i) == key) {
+                    // Single write of value reference, readers see either old or new value
+                    t.values.set(i, value);
+                    return (V) current;
+                }
+                i = (i + 1) & mask;
+            }
+            version++;
+            t.keys.set(i, key);
+            t.values.set(i, value);
+            if (++size > threshold) {
+                rehash(t.capacity << 1);
+            }
+            version++;
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V remove(long key, int hash) {
+            final Table t = table;
+            int mask = t.capacity - 1;
+            int i = hash & mask;
+            Object current;
+            while ((current = t.values.get(i)) != null) {
+                if (t.keys.get(i) == key) {
+                    version++;
+                    shiftBack(t, i);
+                    size--;
+                    version++;
+                    return (V) current;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized boolean remove(long key, int hash, V value) {
+            final Table t = table;
+            int mask = t.capacity - 1;
+            int i = hash & mask;
+            Object current;
+            while ((current = t.values.get(i)) != null) {
+                if (t.keys.get(i) == key) {
+                    if (!current.equals(value)) {
+                        return false;
+                    }
+                    version++;
+                    shiftBack(t, i);
+                    size--;
+                    version++;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        synchronized void clear() {
+            version++;
+            allocate(table.capacity);
+            size = 0;
+            version++;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void copyValues(ArrayList<V> dest) {
+            final Table t = table;
+            for (int i = 0; i < t.capacity; i++) {
+                final Object v = t.values.get(i);
+                if (v != null) {
+                    dest.add((V) v);
+                }
+            }
+        }
+
+        /**
+         * Backward shift deletion: moves following entries of the probe chain to free slot,
+         * so lookups never need tombstones
+         */
+        private void shiftBack(Table t, int free) {
+            int mask = t.capacity - 1;
+            int i = (free + 1) & mask;
+            while (t.values.get(i) != null) {
+                long key = t.keys.get(i);
+                int ideal = hash(key) & mask;
+                // Entry can be moved if its ideal slot is not in (free, i]
+                if (((i - ideal) & mask) >= ((i - free) & mask)) {
+                    t.keys.set(free, key);
+                    t.values.set(free, t.values.get(i));
+                    free = i;
+                }
+                i = (i + 1) & mask;
+            }
+            t.values.set(free, null);
+        }
+
+        private void allocate(int capacity) {
+            table = new Table(capacity);
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        private void rehash(int capacity) {
+            final Table old = table;
+            final Table t = new Table(capacity);
+            int mask = capacity - 1;
+            for (int j = 0; j < old.capacity; j++) {
+                final Object value = old.values.get(j);
+                if (value != null) {
+                    final long key = old.keys.get(j);
+                    int i = hash(key) & mask;
+                    while (t.values.get(i) != null) {
+                        i = (i + 1) & mask;
+                    }
+                    t.keys.set(i, key);
+                    t.values.set(i, value);
+                }
+            }
+            table = t;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+
+    /**
+     * Open-addressing table of segment. Slots are accessed with volatile semantics,
+     * so lookups without lock are ordered with segment version checks.
+     */
+    private static final class Table {
+        private final int capacity;
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<Object> values;
+
+        Table(int capacity) {
+            this.capacity = capacity;
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<Object>(capacity);
+        }
+    }
+}
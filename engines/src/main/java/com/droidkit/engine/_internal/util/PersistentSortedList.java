@@ -0,0 +1,430 @@
+package com.droidkit.engine._internal.util;
+
+import java.util.ArrayList;
+
+/**
+ * Immutable sorted list based on persistent AVL tree with subtree sizes.
+ * Items are ordered by (sortKey, id) pair, so every item has unique position.
+ * Value of item can be null: item keeps its position, but its value is not in memory.
+ * <p>
+ * All modifications return new list sharing all untouched nodes with original one,
+ * so any instance can be safely read from any thread without locking.
+ * Positional access, insert and remove are O(log n).
+ */
+public final class PersistentSortedList<V> {
+
+    private static final PersistentSortedList<Object> EMPTY = new PersistentSortedList<Object>(null);
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentSortedList<V> empty() {
+        return (PersistentSortedList<V>) EMPTY;
+    }
+
+    /**
+     * Build list from items that are already sorted by (sortKey, id) without duplicates
+     */
+    public static <V> PersistentSortedList<V> fromSorted(long[] sortKeys, long[] ids, Object[] values, int count) {
+        if (count == 0) {
+            return empty();
+        }
+        return new PersistentSortedList<V>(PersistentSortedList.<V>build(sortKeys, ids, values, 0, count));
+    }
+
+    private final Node<V> root;
+
+    private PersistentSortedList(Node<V> root) {
+        this.root = root;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return number of items with non-null values
+     */
+    public int valuesCount() {
+        return root == null ? 0 : root.valuesCount;
+    }
+
+    public V get(int index) {
+        return nodeAt(index).value;
+    }
+
+    public long getSortKey(int index) {
+        return nodeAt(index).sortKey;
+    }
+
+    public long getId(int index) {
+        return nodeAt(index).id;
+    }
+
+    /**
+     * @return position of item or -1 if there are no such item
+     */
+    public int indexOf(long sortKey, long id) {
+        int index = 0;
+        Node<V> n = root;
+        while (n != null) {
+            int c = compare(sortKey, id, n.sortKey, n.id);
+            if (c < 0) {
+                n = n.left;
+            } else if (c > 0) {
+                index += size(n.left) + 1;
+                n = n.right;
+            } else {
+                return index + size(n.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of items less than (sortKey, id), in [0, size()]
+     */
+    public int rank(long sortKey, long id) {
+        int index = 0;
+        Node<V> n = root;
+        while (n != null) {
+            if (compare(n.sortKey, n.id, sortKey, id) < 0) {
+                index += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return position of the first item with sort key not less than given one, in [0, size()]
+     */
+    public int lowerBound(long sortKey) {
+        int index = 0;
+        Node<V> n = root;
+        while (n != null) {
+            if (n.sortKey < sortKey) {
+                index += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return position of the first item with sort key greater than given one, in [0, size()]
+     */
+    public int upperBound(long sortKey) {
+        int index = 0;
+        Node<V> n = root;
+        while (n != null) {
+            if (n.sortKey <= sortKey) {
+                index += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Add all non-null values to res in list order.
+     * Subtrees without values are skipped, so cost is O(log n + number of values).
+     */
+    public void collectValues(ArrayList<? super V> res) {
+        collectValues(root, res);
+    }
+
+    /**
+     * Insert item or replace value of item with the same (sortKey, id)
+     */
+    public PersistentSortedList<V> put(long sortKey, long id, V value) {
+        return new PersistentSortedList<V>(insert(root, sortKey, id, value));
+    }
+
+    /**
+     * Insert many items sorted by (sortKey, id) without duplicates.
+     * Items with the same (sortKey, id) are replaced.
+     * Big batches are merged with current items in one linear pass.
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentSortedList<V> putAll(long[] sortKeys, long[] ids, Object[] values, int count) {
+        if (count == 0) {
+            return this;
+        }
+
+        final int size = size();
+        if ((long) count * (32 - Integer.numberOfLeadingZeros(size)) < size) {
+            // Small batch: path copying is cheaper than rebuilding
+            Node<V> res = root;
+            for (int i = 0; i < count; i++) {
+                res = insert(res, sortKeys[i], ids[i], (V) values[i]);
+            }
+            return new PersistentSortedList<V>(res);
+        }
+
+        final long[] curKeys = new long[size];
+        final long[] curIds = new long[size];
+        final Object[] curValues = new Object[size];
+        fill(root, curKeys, curIds, curValues, 0);
+
+        final long[] resKeys = new long[size + count];
+        final long[] resIds = new long[size + count];
+        final Object[] resValues = new Object[size + count];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size || j < count) {
+            int c;
+            if (i == size) {
+                c = 1;
+            } else if (j == count) {
+                c = -1;
+            } else {
+                c = compare(curKeys[i], curIds[i], sortKeys[j], ids[j]);
+            }
+
+            if (c < 0) {
+                resKeys[k] = curKeys[i];
+                resIds[k] = curIds[i];
+                resValues[k++] = curValues[i++];
+            } else {
+                if (c == 0) {
+                    i++;
+                }
+                resKeys[k] = sortKeys[j];
+                resIds[k] = ids[j];
+                resValues[k++] = values[j++];
+            }
+        }
+        return fromSorted(resKeys, resIds, resValues, k);
+    }
+
+    /**
+     * Replace values of items in [from, to) range with null keeping items themselves.
+     * Subtrees without values are skipped, so cost is O(log n + number of cleared values).
+     *
+     * @param evicted list for collecting replaced values, can be null
+     */
+    public PersistentSortedList<V> clearValues(int from, int to, ArrayList<V> evicted) {
+        Node<V> res = clearValues(root, Math.max(from, 0), Math.min(to, size()), 0, evicted);
+        if (res == root) {
+            return this;
+        }
+        return new PersistentSortedList<V>(res);
+    }
+
+    /**
+     * Remove item with specified (sortKey, id)
+     *
+     * @return new list or this list if there are no such item
+     */
+    public PersistentSortedList<V> remove(long sortKey, long id) {
+        Node<V> res = delete(root, sortKey, id);
+        if (res == root) {
+            return this;
+        }
+        return new PersistentSortedList<V>(res);
+    }
+
+    // ---------------------------------------------------------------- tree
+
+    private Node<V> nodeAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<V> n = root;
+        while (true) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                n = n.right;
+            } else {
+                return n;
+            }
+        }
+    }
+
+    private static int compare(long lKey, long lId, long rKey, long rId) {
+        if (lKey != rKey) {
+            return lKey < rKey ? -1 : 1;
+        }
+        if (lId != rId) {
+            return lId < rId ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static <V> void collectValues(Node<V> n, ArrayList<? super V> res) {
+        if (n == null || n.valuesCount == 0) {
+            return;
+        }
+        collectValues(n.left, res);
+        if (n.value != null) {
+            res.add(n.value);
+        }
+        collectValues(n.right, res);
+    }
+
+    private static <V> Node<V> clearValues(Node<V> n, int from, int to, int offset, ArrayList<V> evicted) {
+        if (n == null || n.valuesCount == 0 || to <= offset || from >= offset + n.size) {
+            return n;
+        }
+        int index = offset + size(n.left);
+        Node<V> left = clearValues(n.left, from, to, offset, evicted);
+        V value = n.value;
+        if (value != null && index >= from && index < to) {
+            if (evicted != null) {
+                evicted.add(value);
+            }
+            value = null;
+        }
+        Node<V> right = clearValues(n.right, from, to, index + 1, evicted);
+        if (left == n.left && right == n.right && value == n.value) {
+            return n;
+        }
+        return new Node<V>(n.sortKey, n.id, value, left, right);
+    }
+
+    private static <V> Node<V> insert(Node<V> n, long sortKey, long id, V value) {
+        if (n == null) {
+            return new Node<V>(sortKey, id, value, null, null);
+        }
+        int c = compare(sortKey, id, n.sortKey, n.id);
+        if (c < 0) {
+            return balance(n.sortKey, n.id, n.value, insert(n.left, sortKey, id, value), n.right);
+        } else if (c > 0) {
+            return balance(n.sortKey, n.id, n.value, n.left, insert(n.right, sortKey, id, value));
+        } else {
+            return new Node<V>(sortKey, id, value, n.left, n.right);
+        }
+    }
+
+    private static <V> Node<V> delete(Node<V> n, long sortKey, long id) {
+        if (n == null) {
+            return null;
+        }
+        int c = compare(sortKey, id, n.sortKey, n.id);
+        if (c < 0) {
+            Node<V> left = delete(n.left, sortKey, id);
+            if (left == n.left) {
+                return n;
+            }
+            return balance(n.sortKey, n.id, n.value, left, n.right);
+        } else if (c > 0) {
+            Node<V> right = delete(n.right, sortKey, id);
+            if (right == n.right) {
+                return n;
+            }
+            return balance(n.sortKey, n.id, n.value, n.left, right);
+        } else {
+            if (n.left == null) {
+                return n.right;
+            }
+            if (n.right == null) {
+                return n.left;
+            }
+            Node<V> min = n.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            return balance(min.sortKey, min.id, min.value, n.left, deleteMin(n.right));
+        }
+    }
+
+    private static <V> Node<V> deleteMin(Node<V> n) {
+        if (n.left == null) {
+            return n.right;
+        }
+        return balance(n.sortKey, n.id, n.value, deleteMin(n.left), n.right);
+    }
+
+    private static <V> Node<V> balance(long sortKey, long id, V value, Node<V> l, Node<V> r) {
+        int hl = height(l);
+        int hr = height(r);
+        if (hl > hr + 1) {
+            if (height(l.left) >= height(l.right)) {
+                return new Node<V>(l.sortKey, l.id, l.value, l.left,
+                        new Node<V>(sortKey, id, value, l.right, r));
+            } else {
+                Node<V> lr = l.right;
+                return new Node<V>(lr.sortKey, lr.id, lr.value,
+                        new Node<V>(l.sortKey, l.id, l.value, l.left, lr.left),
+                        new Node<V>(sortKey, id, value, lr.right, r));
+            }
+        } else if (hr > hl + 1) {
+            if (height(r.right) >= height(r.left)) {
+                return new Node<V>(r.sortKey, r.id, r.value,
+                        new Node<V>(sortKey, id, value, l, r.left), r.right);
+            } else {
+                Node<V> rl = r.left;
+                return new Node<V>(rl.sortKey, rl.id, rl.value,
+                        new Node<V>(sortKey, id, value, l, rl.left),
+                        new Node<V>(r.sortKey, r.id, r.value, rl.right, r.right));
+            }
+        }
+        return new Node<V>(sortKey, id, value, l, r);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V> build(long[] sortKeys, long[] ids, Object[] values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<V>(sortKeys[mid], ids[mid], (V) values[mid],
+                PersistentSortedList.<V>build(sortKeys, ids, values, from, mid),
+                PersistentSortedList.<V>build(sortKeys, ids, values, mid + 1, to));
+    }
+
+    private static int fill(Node<?> n, long[] sortKeys, long[] ids, Object[] values, int offset) {
+        if (n == null) {
+            return offset;
+        }
+        offset = fill(n.left, sortKeys, ids, values, offset);
+        sortKeys[offset] = n.sortKey;
+        ids[offset] = n.id;
+        values[offset] = n.value;
+        return fill(n.right, sortKeys, ids, values, offset + 1);
+    }
+
+    private static final class Node<V> {
+        final long sortKey;
+        final long id;
+        final V value;
+        final Node<V> left;
+        final Node<V> right;
+        final int height;
+        final int size;
+        final int valuesCount;
+
+        Node(long sortKey, long id, V value, Node<V> left, Node<V> right) {
+            this.sortKey = sortKey;
+            this.id = id;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+            this.valuesCount = (left == null ? 0 : left.valuesCount) + (right == null ? 0 : right.valuesCount)
+                    + (value == null ? 0 : 1);
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.droidkit.engine._internal.util;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 
 /**
@@ -13,6 +13,8 @@ import java.util.Comparator;
  */
 public class SortedArrayList<E> extends ArrayList<E> {
 
+    private static final long serialVersionUID = 1L;
+
     protected final Comparator<E> comparator;
 
     /**
@@ -35,27 +37,128 @@ public class SortedArrayList<E> extends ArrayList<E> {
      */
     @Override
     public boolean add(E o) {
-        super.add(o);
-        sort();
+        if (comparator == null || isEmpty() || comparator.compare(o, get(size() - 1)) >= 0) {
+            // Fast path: new maximum (or equal to it) goes to the end
+            super.add(o);
+        } else {
+            super.add(upperBound(o), o);
+        }
         return true;
     }
 
     /**
      * Add all of the elements in the given collection to this list.
+     * <p>
+     * Collection is sorted (if it is not sorted already) and merged with current
+     * items in one linear pass. Existing items are kept before new items with the same key.
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean addAll(Collection<? extends E> c) {
-        super.addAll(c);
-        sort();
+        if (c.isEmpty()) {
+            return false;
+        }
+
+        final E[] items = (E[]) c.toArray();
+        if (comparator != null) {
+            sortBatch(items);
+        }
+
+        final int oldSize = size();
+        if (comparator == null || oldSize == 0 || comparator.compare(items[0], get(oldSize - 1)) >= 0) {
+            // Fast path: whole batch is after current maximum
+            return super.addAll(Arrays.asList(items));
+        }
+
+        // Grow list and merge from the end, so each item is moved only once
+        ensureCapacity(oldSize + items.length);
+        for (int i = 0; i < items.length; i++) {
+            super.add(null);
+        }
+
+        int i = oldSize - 1;
+        int j = items.length - 1;
+        int k = oldSize + items.length - 1;
+        while (j >= 0) {
+            if (i >= 0 && comparator.compare(get(i), items[j]) > 0) {
+                set(k--, get(i--));
+            } else {
+                set(k--, items[j--]);
+            }
+        }
         return true;
     }
 
+    // ---------------------------------------------------------------- search
+
+    /**
+     * Binary search of the first position with item that is not less than given one
+     *
+     * @param o item to compare with
+     * @return position in [0, size()]
+     */
+    public int lowerBound(E o) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(get(mid), o) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search of the first position with item that is greater than given one
+     *
+     * @param o item to compare with
+     * @return position in [0, size()]
+     */
+    public int upperBound(E o) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(get(mid), o) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 
     // ---------------------------------------------------------------- sorting
-    private void sort() {
-        if (comparator != null) {
-            Collections.sort(this, comparator);
+
+    private void sortBatch(E[] items) {
+        boolean ascending = true;
+        boolean descending = true;
+        for (int i = 1; i < items.length && (ascending || descending); i++) {
+            int cmp = comparator.compare(items[i - 1], items[i]);
+            if (cmp > 0) {
+                ascending = false;
+            } else if (cmp < 0) {
+                descending = false;
+            }
+        }
+
+        if (ascending) {
+            return;
+        }
+
+        if (descending) {
+            // Slices loaded in DESC order are simply reversed
+            for (int l = 0, r = items.length - 1; l < r; l++, r--) {
+                E tmp = items[l];
+                items[l] = items[r];
+                items[r] = tmp;
+            }
+        } else {
+            Arrays.sort(items, comparator);
         }
     }
 
-}
\ No newline at end of file
+}
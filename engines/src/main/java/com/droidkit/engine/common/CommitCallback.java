@@ -0,0 +1,7 @@
+package com.droidkit.engine.common;
+
+public interface CommitCallback {
+    void committed();
+
+    void failed(Exception e);
+}
@@ -0,0 +1,117 @@
+package com.droidkit.engine.common;
+
+import java.util.ArrayList;
+
+/**
+ * Result of engine write, resolved when write is committed to storage.
+ * Handles are created and resolved only by engines.
+ */
+public class CommitHandle {
+
+    private boolean isDone = false;
+
+    private Exception error;
+
+    private ArrayList<CommitCallback> callbacks = new ArrayList<CommitCallback>();
+
+    protected CommitHandle() {
+
+    }
+
+    public synchronized boolean isDone() {
+        return isDone;
+    }
+
+    /**
+     * @return true if write is committed, false if it is not committed yet or failed
+     */
+    public synchronized boolean isCommitted() {
+        return isDone && error == null;
+    }
+
+    /**
+     * @return error of failed write or null
+     */
+    public synchronized Exception getError() {
+        return error;
+    }
+
+    /**
+     * Wait for commit, should not be called from ui thread
+     *
+     * @throws RuntimeException if write failed
+     */
+    public synchronized void await() throws InterruptedException {
+        while (!isDone) {
+            wait();
+        }
+        checkError();
+    }
+
+    /**
+     * Wait for commit not longer than timeout
+     *
+     * @return true if write is committed in time
+     * @throws RuntimeException if write failed
+     */
+    public synchronized boolean await(long timeoutMs) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (!isDone && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        checkError();
+        return isDone;
+    }
+
+    /**
+     * Add callback called in db thread after commit, or immediately if write is already done
+     */
+    public void addCallback(CommitCallback callback) {
+        synchronized (this) {
+            if (!isDone) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        notifyCallback(callback);
+    }
+
+    /**
+     * Resolve handle, called by engines only
+     *
+     * @param error error of write or null if write is committed
+     */
+    protected void complete(Exception error) {
+        final ArrayList<CommitCallback> toNotify;
+        synchronized (this) {
+            if (isDone) {
+                return;
+            }
+            this.isDone = true;
+            this.error = error;
+            toNotify = callbacks;
+            callbacks = null;
+            notifyAll();
+        }
+        for (CommitCallback callback : toNotify) {
+            notifyCallback(callback);
+        }
+    }
+
+    private void notifyCallback(CommitCallback callback) {
+        final Exception e = getError();
+        if (e == null) {
+            callback.committed();
+        } else {
+            callback.failed(e);
+        }
+    }
+
+    private void checkError() {
+        if (error != null) {
+            throw new RuntimeException("Write failed", error);
+        }
+    }
+}
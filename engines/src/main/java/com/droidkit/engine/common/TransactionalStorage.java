@@ -0,0 +1,14 @@
+package com.droidkit.engine.common;
+
+/**
+ * Optional interface of engine storage adapters supporting transactions.
+ * Engines commit writes of such storages in groups, one transaction per group,
+ * writes to other storages are executed one by one.
+ */
+public interface TransactionalStorage {
+
+    /**
+     * Run all operations made by runnable in one transaction
+     */
+    void runInTransaction(Runnable runnable);
+}
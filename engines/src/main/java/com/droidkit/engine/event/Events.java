@@ -2,6 +2,13 @@ package com.droidkit.engine.event;
 
 public interface Events {
     //todo move to main project
+    /**
+     * ListEngine or ListView published new list version, eventArgs are Integer[]{changeSize}
+     */
     int LIST_ENGINE_UI_LIST_UPDATE = 0x01;
     int KEY_VALUE_UPDATE = 0x02;
+    /**
+     * Fired right after LIST_ENGINE_UI_LIST_UPDATE with the same id, eventArgs are {ListChangeSet changes}
+     */
+    int LIST_ENGINE_UI_LIST_CHANGES = 0x03;
 }
@@ -1,13 +1,11 @@
 package com.droidkit.engine.event;
 
-import android.annotation.SuppressLint;
-import android.os.Handler;
-import android.os.Looper;
-
 import com.droidkit.actors.dispatch.RunnableDispatcher;
 import com.droidkit.engine.Engines;
-import com.droidkit.engine._internal.util.Utils;
 import com.droidkit.engine._internal.util.WeakEqualReference;
+import com.droidkit.engine.metrics.Counter;
+import com.droidkit.engine.metrics.EngineMetrics;
+import com.droidkit.engine.platform.Platform;
 
 import java.util.Collections;
 import java.util.Iterator;
@@ -39,7 +37,6 @@ public class NotificationCenter {
         return instance;
     }
 
-    @SuppressLint("NewApi")
     private NotificationCenter() {
         backgroundFireLoop = new RunnableDispatcher(1);
 
@@ -52,10 +49,20 @@ public class NotificationCenter {
 
 /////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Platform platform = Platform.get();
 
     private final Object fireRemoveSyncObject = new Object();
 
+    /**
+     * Number of fired events
+     */
+    private final Counter firedCounter = EngineMetrics.counter("notifications.fired");
+
+    /**
+     * Number of listener calls
+     */
+    private final Counter deliveredCounter = EngineMetrics.counter("notifications.delivered");
+
     /**
      * Loop for background event fires
      */
@@ -109,7 +116,7 @@ public class NotificationCenter {
 
         if (notificationListener != null) {
             listeners.add(new WeakEqualReference<OnNotificationListenerContainer>(
-                    new OnNotificationListenerContainer(eventType, eventId, notificationListener, Utils.isUIThread())
+                    new OnNotificationListenerContainer(eventType, eventId, notificationListener, platform.isMainThread())
             ));
         }
     }
@@ -147,7 +154,8 @@ public class NotificationCenter {
     public void fireEvent(final int eventType, final int eventId, final Object[] args) {
         final Iterator<WeakEqualReference<OnNotificationListenerContainer>> it = listeners.iterator();
 
-        final boolean isUiThread = Utils.isUIThread();
+        final boolean isUiThread = platform.isMainThread();
+        firedCounter.increment();
 
         final State state = states.get(eventType);
         if (state != null) {
@@ -165,6 +173,7 @@ public class NotificationCenter {
                     if (!listenerContainer.isDeleted()) {
                         if (isUiThread && listenerContainer.wasAddedInUIThread) {
                             listenerContainer.listener.onNotification(eventType, eventId, args);
+                            deliveredCounter.increment();
                             continue;
                         }
                         final Runnable fireEvent = new Runnable() {
@@ -174,12 +183,13 @@ public class NotificationCenter {
                                     //double-check here
                                     if (!listenerContainer.isDeleted()) {
                                         listenerContainer.listener.onNotification(eventType, eventId, args);
+                                        deliveredCounter.increment();
                                     }
                                 }
                             }
                         };
                         if (listenerContainer.wasAddedInUIThread) {
-                            handler.post(fireEvent);
+                            platform.postToMainThread(fireEvent);
                         } else {
                             backgroundFireLoop.postAction(fireEvent);
                         }
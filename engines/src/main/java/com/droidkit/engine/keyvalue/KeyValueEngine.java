@@ -1,18 +1,29 @@
 package com.droidkit.engine.keyvalue;
 
-import android.support.v4.util.LruCache;
-
+import com.droidkit.actors.ActorCreator;
 import com.droidkit.actors.ActorRef;
+import com.droidkit.actors.ActorSelection;
 import com.droidkit.actors.ActorSystem;
+import com.droidkit.actors.Props;
 import com.droidkit.engine.Engines;
+import com.droidkit.engine._internal.GroupCommitter;
 import com.droidkit.engine._internal.RunnableActor;
-import com.droidkit.engine._internal.util.Utils;
+import com.droidkit.engine.common.CommitCallback;
+import com.droidkit.engine.common.CommitHandle;
 import com.droidkit.engine.common.ValueCallback;
 import com.droidkit.engine.common.ValuesCallback;
 import com.droidkit.engine.event.Events;
 import com.droidkit.engine.event.NotificationCenter;
+import com.droidkit.engine.metrics.EngineMetrics;
+import com.droidkit.engine.metrics.Gauge;
+import com.droidkit.engine.platform.Cache;
+import com.droidkit.engine.platform.Platform;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class KeyValueEngine<V> {
@@ -28,18 +39,28 @@ public class KeyValueEngine<V> {
     private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
 
     /**
-     * Loop for all database operations
+     * Loop for all database writes
      */
     protected final ActorRef dbActor;
 
+    /**
+     * Loop for database reads, works in parallel with reads of other engines
+     */
+    protected final ActorRef readActor;
+
+    /**
+     * Queue of writes committed by groups in dbActor
+     */
+    protected final GroupCommitter committer;
+
     /**
      * Id used in sending of NotificationCenter events
      */
     protected final int uniqueId;
 
-    private LruCache<Long, V> inMemoryLruCache;
+    private Cache<Long, V> inMemoryLruCache;
 
-    private final StorageAdapter<V> storageAdapter;
+    private final MeasuredStorageAdapter<V> storageAdapter;
 
     private final DataAdapter<V> dataAdapter;
 
@@ -53,21 +74,40 @@ public class KeyValueEngine<V> {
                           DataAdapter<V> dataAdapter,
                           int inMemoryCacheSize) {
         this.uniqueId = NEXT_ID.getAndIncrement();
-        this.inMemoryLruCache = new LruCache<Long, V>(inMemoryCacheSize);
-        this.storageAdapter = storageAdapter;
+        this.inMemoryLruCache = Platform.get().createCache(inMemoryCacheSize);
+        this.storageAdapter = new MeasuredStorageAdapter<V>(storageAdapter, "key_value_" + uniqueId + ".db");
         this.dataAdapter = dataAdapter;
-        this.dbActor = ActorSystem.system().actorOf(RunnableActor.class, "key_value_db_" + uniqueId);
+        this.dbActor = ActorSystem.system().actorOf(runnableActor(Engines.DB_WRITE_DISPATCHER, "key_value_db_" + uniqueId));
+        this.readActor = ActorSystem.system().actorOf(runnableActor(Engines.DB_READ_DISPATCHER, "key_value_db_read_" + uniqueId));
+        this.committer = new GroupCommitter(dbActor, storageAdapter) {
+            @Override
+            protected void runInTransaction(Runnable runnable) {
+                KeyValueEngine.this.storageAdapter.runInTransaction(runnable);
+            }
+        };
+        EngineMetrics.registerGauge("key_value_" + uniqueId + ".queue.db", new QueueGauge(committer));
+    }
+
+    private static ActorSelection runnableActor(String dispatcher, String path) {
+        return new ActorSelection(Props.create(RunnableActor.class, new ActorCreator<RunnableActor>() {
+            @Override
+            public RunnableActor create() {
+                return new RunnableActor();
+            }
+        }).changeDispatcher(dispatcher), path);
     }
 
-    public void put(final V value) {
+    /**
+     * @return handle resolved when value is committed to storage
+     */
+    public CommitHandle put(final V value) {
         inMemoryLruCache.put(dataAdapter.getId(value), value);
-        dbActor.send(new Runnable() {
+        return notifyOnCommit(committer.submit(new Runnable() {
             @Override
             public void run() {
                 storageAdapter.insertOrReplaceSingle(value);
-                NotificationCenter.getInstance().fireEvent(Events.KEY_VALUE_UPDATE, uniqueId);
             }
-        });
+        }));
     }
 
     public void putSync(final V value) {
@@ -76,17 +116,19 @@ public class KeyValueEngine<V> {
         NotificationCenter.getInstance().fireEvent(Events.KEY_VALUE_UPDATE, uniqueId);
     }
 
-    public void putAll(final ArrayList<V> values) {
+    /**
+     * @return handle resolved when values are committed to storage
+     */
+    public CommitHandle putAll(final ArrayList<V> values) {
         for (V v : values) {
             inMemoryLruCache.put(dataAdapter.getId(v), v);
         }
-        dbActor.send(new Runnable() {
+        return notifyOnCommit(committer.submit(new Runnable() {
             @Override
             public void run() {
                 storageAdapter.insertOrReplaceBatch(values);
-                NotificationCenter.getInstance().fireEvent(Events.KEY_VALUE_UPDATE, uniqueId);
             }
-        });
+        }));
     }
 
     public void putAllSync(final ArrayList<V> values) {
@@ -97,12 +139,31 @@ public class KeyValueEngine<V> {
         NotificationCenter.getInstance().fireEvent(Events.KEY_VALUE_UPDATE, uniqueId);
     }
 
+    /**
+     * Fire KEY_VALUE_UPDATE after write is committed, so listeners always see written values in storage.
+     * Event is fired once even if write is retried and is not fired for failed writes.
+     */
+    private CommitHandle notifyOnCommit(CommitHandle handle) {
+        handle.addCallback(new CommitCallback() {
+            @Override
+            public void committed() {
+                NotificationCenter.getInstance().fireEvent(Events.KEY_VALUE_UPDATE, uniqueId);
+            }
+
+            @Override
+            public void failed(Exception e) {
+
+            }
+        });
+        return handle;
+    }
+
     public V getFromMemory(final long id) {
         return inMemoryLruCache.get(id);
     }
 
     public V getFromDiskSync(final long id) {
-        if (Utils.isUIThread()) {
+        if (Platform.get().isMainThread()) {
             throw new RuntimeException("getFromDiskSync should be called only from background threads");
         }
 
@@ -122,7 +183,7 @@ public class KeyValueEngine<V> {
     }
 
     public void getFromDisk(final long id, final ValueCallback<V> callback) {
-        dbActor.send(new Runnable() {
+        committer.read(readActor, new Runnable() {
             @Override
             public void run() {
                 callback.value(getFromDiskSync(id));
@@ -130,8 +191,75 @@ public class KeyValueEngine<V> {
         });
     }
 
+    /**
+     * Get values with specified ids: values from memory cache first, all missed values
+     * are loaded from storage at once. Ids without values are skipped, order is not specified.
+     */
+    public ArrayList<V> getByIdsSync(final long[] ids) {
+        final ArrayList<V> res = new ArrayList<V>(ids.length);
+        final long[] missed = getFromMemory(ids, res);
+        if (missed.length > 0) {
+            res.addAll(getFromDiskSync(missed));
+        }
+        return res;
+    }
+
+    /**
+     * The same as getByIdsSync, but missed values are loaded in background.
+     * Callback is called once with all found values.
+     */
+    public void getByIds(final long[] ids, final ValuesCallback<V> callback) {
+        final ArrayList<V> res = new ArrayList<V>(ids.length);
+        final long[] missed = getFromMemory(ids, res);
+        if (missed.length == 0) {
+            callback.values(res);
+            return;
+        }
+        committer.read(readActor, new Runnable() {
+            @Override
+            public void run() {
+                res.addAll(getFromDiskSync(missed));
+                callback.values(res);
+            }
+        });
+    }
+
+    /**
+     * Load values with specified ids from storage and put them to memory cache
+     */
+    public ArrayList<V> getFromDiskSync(final long[] ids) {
+        if (Platform.get().isMainThread()) {
+            throw new RuntimeException("getFromDiskSync should be called only from background threads");
+        }
+
+        final ArrayList<V> values = storageAdapter.getByIds(ids);
+        for (V v : values) {
+            inMemoryLruCache.put(dataAdapter.getId(v), v);
+        }
+        return values;
+    }
+
+    /**
+     * Add cached values to res
+     *
+     * @return ids missed in cache
+     */
+    private long[] getFromMemory(long[] ids, ArrayList<V> res) {
+        final long[] missed = new long[ids.length];
+        int missedCount = 0;
+        for (long id : ids) {
+            final V value = inMemoryLruCache.get(id);
+            if (value != null) {
+                res.add(value);
+            } else {
+                missed[missedCount++] = id;
+            }
+        }
+        return missedCount == missed.length ? missed : Arrays.copyOf(missed, missedCount);
+    }
+
     public void getAllFromDisk(final ValuesCallback<V> callback) {
-        dbActor.send(new Runnable() {
+        committer.read(readActor, new Runnable() {
             @Override
             public void run() {
                 callback.values(getAllFromDiskSync());
@@ -143,9 +271,93 @@ public class KeyValueEngine<V> {
         return storageAdapter.loadAll();
     }
 
-    public void clear() {
+    /**
+     * Load all values by chunks ordered by id. Callback is called for every chunk as soon as it is loaded,
+     * last call has less than chunkSize values (maybe none), it is also made if loading fails.
+     * Only one chunk is kept in memory by engine at any time, except for storages
+     * not implementing {@link SliceStorageAdapter}: they are loaded at once and then split to chunks.
+     */
+    public void getAllFromDiskStreaming(final int chunkSize, final ValuesCallback<V> callback) {
+        committer.read(readActor, new Runnable() {
+            @Override
+            public void run() {
+                if (storageAdapter.isSliceSupported()) {
+                    loadChunk(chunkSize, Long.MIN_VALUE, callback);
+                    return;
+                }
+                final ArrayList<V> all;
+                try {
+                    all = storageAdapter.loadAll();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    callback.values(new ArrayList<V>());
+                    return;
+                }
+                splitToChunks(all, chunkSize, callback);
+            }
+        });
+    }
+
+    private void splitToChunks(ArrayList<V> all, int chunkSize, ValuesCallback<V> callback) {
+        if (all == null) {
+            callback.values(new ArrayList<V>());
+            return;
+        }
+        Collections.sort(all, new Comparator<V>() {
+            @Override
+            public int compare(V a, V b) {
+                final long aId = dataAdapter.getId(a);
+                final long bId = dataAdapter.getId(b);
+                return aId < bId ? -1 : (aId == bId ? 0 : 1);
+            }
+        });
+        int from = 0;
+        while (true) {
+            final int to = Math.min(from + chunkSize, all.size());
+            callback.values(new ArrayList<V>(all.subList(from, to)));
+            if (to - from < chunkSize) {
+                return;
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Load chunk and schedule loading of the next one.
+     * If loading fails, streaming is finished with empty chunk.
+     */
+    private void loadChunk(final int chunkSize, long afterId, final ValuesCallback<V> callback) {
+        final ArrayList<V> chunk;
+        try {
+            chunk = storageAdapter.loadSlice(chunkSize, afterId);
+        } catch (Exception e) {
+            e.printStackTrace();
+            callback.values(new ArrayList<V>());
+            return;
+        }
+        if (chunk == null) {
+            callback.values(new ArrayList<V>());
+            return;
+        }
+        callback.values(chunk);
+        if (chunk.size() >= chunkSize) {
+            final long lastId = dataAdapter.getId(chunk.get(chunk.size() - 1));
+            // Next chunk is loaded with separate message, so other db operations are not blocked
+            committer.read(readActor, new Runnable() {
+                @Override
+                public void run() {
+                    loadChunk(chunkSize, lastId, callback);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return handle resolved when clearing is committed to storage
+     */
+    public CommitHandle clear() {
         inMemoryLruCache.evictAll();
-        dbActor.send(new Runnable() {
+        return committer.submit(new Runnable() {
             @Override
             public void run() {
                 storageAdapter.deleteAll();
@@ -158,9 +370,12 @@ public class KeyValueEngine<V> {
         storageAdapter.deleteAll();
     }
 
-    public void remove(final long id) {
+    /**
+     * @return handle resolved when removal is committed to storage
+     */
+    public CommitHandle remove(final long id) {
         inMemoryLruCache.remove(id);
-        dbActor.send(new Runnable() {
+        return committer.submit(new Runnable() {
             @Override
             public void run() {
                 storageAdapter.deleteSingle(id);
@@ -176,4 +391,28 @@ public class KeyValueEngine<V> {
     public int getUniqueId() {
         return uniqueId;
     }
+
+    /**
+     * Remove metrics of engine from EngineMetrics, engine shouldn't be used after this call
+     */
+    public void dispose() {
+        EngineMetrics.unregisterAll("key_value_" + uniqueId + ".");
+    }
+
+    /**
+     * Number of uncommitted writes of engine, committer is referenced weakly
+     */
+    private static class QueueGauge implements Gauge {
+        private final WeakReference<GroupCommitter> committer;
+
+        private QueueGauge(GroupCommitter committer) {
+            this.committer = new WeakReference<GroupCommitter>(committer);
+        }
+
+        @Override
+        public long value() {
+            final GroupCommitter c = committer.get();
+            return c == null ? 0 : c.getUncommittedCount();
+        }
+    }
 }
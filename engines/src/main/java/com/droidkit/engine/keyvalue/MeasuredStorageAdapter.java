@@ -0,0 +1,167 @@
+package com.droidkit.engine.keyvalue;
+
+import com.droidkit.engine.common.TransactionalStorage;
+import com.droidkit.engine.metrics.EngineMetrics;
+import com.droidkit.engine.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+
+/**
+ * StorageAdapter recording latency of every operation of wrapped adapter to EngineMetrics.
+ * Also provides optional storage operations, falling back to basic ones if wrapped adapter doesn't support them.
+ */
+class MeasuredStorageAdapter<V> implements StorageAdapter<V> {
+
+    private final StorageAdapter<V> storageAdapter;
+
+    private final LatencyHistogram insertSingle;
+    private final LatencyHistogram insertOrReplaceSingle;
+    private final LatencyHistogram deleteSingle;
+    private final LatencyHistogram insertBatch;
+    private final LatencyHistogram insertOrReplaceBatch;
+    private final LatencyHistogram deleteBatch;
+    private final LatencyHistogram deleteAll;
+    private final LatencyHistogram runInTransaction;
+    private final LatencyHistogram loadAll;
+    private final LatencyHistogram loadSlice;
+    private final LatencyHistogram getById;
+    private final LatencyHistogram getByIds;
+
+    MeasuredStorageAdapter(StorageAdapter<V> storageAdapter, String prefix) {
+        this.storageAdapter = storageAdapter;
+        insertSingle = EngineMetrics.histogram(prefix + ".insertSingle");
+        insertOrReplaceSingle = EngineMetrics.histogram(prefix + ".insertOrReplaceSingle");
+        deleteSingle = EngineMetrics.histogram(prefix + ".deleteSingle");
+        insertBatch = EngineMetrics.histogram(prefix + ".insertBatch");
+        insertOrReplaceBatch = EngineMetrics.histogram(prefix + ".insertOrReplaceBatch");
+        deleteBatch = EngineMetrics.histogram(prefix + ".deleteBatch");
+        deleteAll = EngineMetrics.histogram(prefix + ".deleteAll");
+        runInTransaction = EngineMetrics.histogram(prefix + ".runInTransaction");
+        loadAll = EngineMetrics.histogram(prefix + ".loadAll");
+        loadSlice = EngineMetrics.histogram(prefix + ".loadSlice");
+        getById = EngineMetrics.histogram(prefix + ".getById");
+        getByIds = EngineMetrics.histogram(prefix + ".getByIds");
+    }
+
+    @Override
+    public void insertSingle(V item) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertSingle(item);
+        insertSingle.recordSince(start);
+    }
+
+    @Override
+    public void insertOrReplaceSingle(V item) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertOrReplaceSingle(item);
+        insertOrReplaceSingle.recordSince(start);
+    }
+
+    @Override
+    public void deleteSingle(long id) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.deleteSingle(id);
+        deleteSingle.recordSince(start);
+    }
+
+    @Override
+    public void insertBatch(ArrayList<V> items) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertBatch(items);
+        insertBatch.recordSince(start);
+    }
+
+    @Override
+    public void insertOrReplaceBatch(ArrayList<V> items) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertOrReplaceBatch(items);
+        insertOrReplaceBatch.recordSince(start);
+    }
+
+    @Override
+    public void deleteBatch(ArrayList<Long> ids) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.deleteBatch(ids);
+        deleteBatch.recordSince(start);
+    }
+
+    @Override
+    public void deleteAll() {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.deleteAll();
+        deleteAll.recordSince(start);
+    }
+
+    /**
+     * Run runnable in transaction of wrapped adapter, or just run it if adapter is not transactional
+     */
+    public void runInTransaction(Runnable runnable) {
+        final long start = EngineMetrics.startTime();
+        if (storageAdapter instanceof TransactionalStorage) {
+            ((TransactionalStorage) storageAdapter).runInTransaction(runnable);
+        } else {
+            runnable.run();
+        }
+        runInTransaction.recordSince(start);
+    }
+
+    @Override
+    public ArrayList<V> loadAll() {
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res = storageAdapter.loadAll();
+        loadAll.recordSince(start);
+        return res;
+    }
+
+    /**
+     * @return true if wrapped adapter can load values by id ranges
+     */
+    public boolean isSliceSupported() {
+        return storageAdapter instanceof SliceStorageAdapter;
+    }
+
+    /**
+     * Load up to limit items with ids greater than afterId ordered by id, supported only if isSliceSupported()
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> loadSlice(int limit, long afterId) {
+        if (!isSliceSupported()) {
+            throw new UnsupportedOperationException("Storage doesn't support loading of slices");
+        }
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res = ((SliceStorageAdapter<V>) storageAdapter).loadSlice(limit, afterId);
+        loadSlice.recordSince(start);
+        return res;
+    }
+
+    @Override
+    public V getById(long id) {
+        final long start = EngineMetrics.startTime();
+        final V res = storageAdapter.getById(id);
+        getById.recordSince(start);
+        return res;
+    }
+
+    /**
+     * Load items with specified ids, ids without items are skipped, order of result is not specified.
+     * If wrapped adapter is not a MultiGetStorageAdapter, items are loaded one by one
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> getByIds(long[] ids) {
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res;
+        if (storageAdapter instanceof MultiGetStorageAdapter) {
+            res = ((MultiGetStorageAdapter<V>) storageAdapter).getByIds(ids);
+        } else {
+            res = new ArrayList<V>(ids.length);
+            for (long id : ids) {
+                final V value = storageAdapter.getById(id);
+                if (value != null) {
+                    res.add(value);
+                }
+            }
+        }
+        getByIds.recordSince(start);
+        return res;
+    }
+}
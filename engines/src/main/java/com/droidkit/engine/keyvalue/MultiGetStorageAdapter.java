@@ -0,0 +1,15 @@
+package com.droidkit.engine.keyvalue;
+
+import java.util.ArrayList;
+
+/**
+ * Optional interface of key value StorageAdapter loading many values at once.
+ * Values of other storages are loaded one by one with getById.
+ */
+public interface MultiGetStorageAdapter<V> {
+
+    /**
+     * Load items with specified ids, ids without items are skipped, order of result is not specified
+     */
+    ArrayList<V> getByIds(long[] ids);
+}
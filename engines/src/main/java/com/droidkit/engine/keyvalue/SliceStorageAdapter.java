@@ -0,0 +1,16 @@
+package com.droidkit.engine.keyvalue;
+
+import java.util.ArrayList;
+
+/**
+ * Optional interface of key value StorageAdapter loading values by id ranges,
+ * used for streaming of all values by KeyValueEngine.
+ * Other storages are streamed from single loadAll().
+ */
+public interface SliceStorageAdapter<V> {
+
+    /**
+     * Load up to limit items with ids greater than afterId ordered by id
+     */
+    ArrayList<V> loadSlice(int limit, long afterId);
+}
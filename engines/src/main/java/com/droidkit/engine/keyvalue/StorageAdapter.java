@@ -21,7 +21,4 @@ public interface StorageAdapter<V> {
     ArrayList<V> loadAll();
 
     V getById(long id);
-
-    //todo ad getByIds
-
 }
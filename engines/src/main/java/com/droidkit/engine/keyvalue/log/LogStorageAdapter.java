@@ -0,0 +1,145 @@
+package com.droidkit.engine.keyvalue.log;
+
+import com.droidkit.engine._internal.log.SegmentLog;
+import com.droidkit.engine.common.TransactionalStorage;
+import com.droidkit.engine.keyvalue.DataAdapter;
+import com.droidkit.engine.keyvalue.MultiGetStorageAdapter;
+import com.droidkit.engine.keyvalue.SliceStorageAdapter;
+import com.droidkit.engine.keyvalue.StorageAdapter;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * StorageAdapter keeping items in memory mapped append-only log instead of SQLite.
+ * Every engine needs its own directory.
+ */
+public class LogStorageAdapter<V> implements StorageAdapter<V>, SliceStorageAdapter<V>,
+        MultiGetStorageAdapter<V>, TransactionalStorage {
+
+    /**
+     * Items are ordered only by id
+     */
+    private static final long SORT_KEY = 0;
+
+    private final SegmentLog log;
+
+    private final DataAdapter<V> dataAdapter;
+
+    public LogStorageAdapter(File directory,
+                             int segmentSize,
+                             DataAdapter<V> dataAdapter) {
+        this.log = new SegmentLog(directory, segmentSize);
+        this.dataAdapter = dataAdapter;
+    }
+
+    public LogStorageAdapter(File directory,
+                             DataAdapter<V> dataAdapter) {
+        this(directory, SegmentLog.DEFAULT_SEGMENT_SIZE, dataAdapter);
+    }
+
+    @Override
+    public void insertSingle(V item) {
+        insert(item);
+    }
+
+    @Override
+    public void insertOrReplaceSingle(V item) {
+        put(item);
+    }
+
+    @Override
+    public void deleteSingle(long id) {
+        log.remove(id);
+    }
+
+    @Override
+    public void insertBatch(final ArrayList<V> items) {
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (V item : items) {
+                    insert(item);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void insertOrReplaceBatch(final ArrayList<V> items) {
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (V item : items) {
+                    put(item);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void deleteBatch(final ArrayList<Long> ids) {
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (Long id : ids) {
+                    log.remove(id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void deleteAll() {
+        log.clear();
+    }
+
+    @Override
+    public void runInTransaction(Runnable runnable) {
+        log.runInTransaction(runnable);
+    }
+
+    @Override
+    public ArrayList<V> loadAll() {
+        return deserialize(log.all());
+    }
+
+    @Override
+    public ArrayList<V> loadSlice(int limit, long afterId) {
+        return deserialize(log.sliceAfter(SORT_KEY, afterId, limit, true));
+    }
+
+    @Override
+    public V getById(long id) {
+        final SegmentLog.Item item = log.get(id);
+        return item == null ? null : dataAdapter.deserialize(item.getBytes());
+    }
+
+    @Override
+    public ArrayList<V> getByIds(long[] ids) {
+        return deserialize(log.getAll(ids));
+    }
+
+    private void insert(V item) {
+        final long id = dataAdapter.getId(item);
+        if (log.contains(id)) {
+            throw new IllegalStateException("Item with id " + id + " already exists");
+        }
+        log.put(id, SORT_KEY, dataAdapter.serialize(item));
+    }
+
+    private void put(V item) {
+        log.put(dataAdapter.getId(item), SORT_KEY, dataAdapter.serialize(item));
+    }
+
+    private ArrayList<V> deserialize(ArrayList<SegmentLog.Item> items) {
+        final ArrayList<V> res = new ArrayList<V>(items.size());
+        for (SegmentLog.Item item : items) {
+            final V value = dataAdapter.deserialize(item.getBytes());
+            if (value != null) {
+                res.add(value);
+            }
+        }
+        return res;
+    }
+}
@@ -2,13 +2,18 @@ package com.droidkit.engine.keyvalue.sqlite;
 
 import android.database.sqlite.SQLiteDatabase;
 
+import com.droidkit.engine._internal.TransactionScope;
+import com.droidkit.engine.common.TransactionalStorage;
 import com.droidkit.engine.keyvalue.DataAdapter;
+import com.droidkit.engine.keyvalue.MultiGetStorageAdapter;
+import com.droidkit.engine.keyvalue.SliceStorageAdapter;
 import com.droidkit.engine.keyvalue.StorageAdapter;
 import com.droidkit.engine.keyvalue.sqlite.internal.KeyValueEngineDao;
 
 import java.util.ArrayList;
 
-public class SQLiteStorageAdapter<V> implements StorageAdapter<V> {
+public class SQLiteStorageAdapter<V> implements StorageAdapter<V>, SliceStorageAdapter<V>,
+        MultiGetStorageAdapter<V>, TransactionalStorage, TransactionScope {
 
     private final KeyValueEngineDao<V> dao;
 
@@ -18,6 +23,15 @@ public class SQLiteStorageAdapter<V> implements StorageAdapter<V> {
         dao = new KeyValueEngineDao<V>(name, database, adapter);
     }
 
+    /**
+     * Deserialize loaded items with several threads
+     *
+     * @param parallelism maximum number of chunks deserialized at the same time, 1 to disable
+     */
+    public void setDeserializeParallelism(int parallelism) {
+        dao.setDeserializeParallelism(parallelism);
+    }
+
     @Override
     public void insertSingle(V item) {
         dao.insert(item);
@@ -53,13 +67,36 @@ public class SQLiteStorageAdapter<V> implements StorageAdapter<V> {
         dao.deleteAll();
     }
 
+    @Override
+    public void runInTransaction(Runnable runnable) {
+        dao.runInTx(runnable);
+    }
+
     @Override
     public ArrayList<V> loadAll() {
         return dao.getAll();
     }
 
+    @Override
+    public ArrayList<V> loadSlice(int limit, long afterId) {
+        return dao.getNextSlice(limit, afterId);
+    }
+
     @Override
     public V getById(long id) {
         return dao.getById(id);
     }
+
+    @Override
+    public ArrayList<V> getByIds(long[] ids) {
+        return dao.getByIds(ids);
+    }
+
+    /**
+     * All adapters of one database share transactions
+     */
+    @Override
+    public Object getTransactionScope() {
+        return dao.db;
+    }
 }
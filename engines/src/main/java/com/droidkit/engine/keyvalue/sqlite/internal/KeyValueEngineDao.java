@@ -51,6 +51,11 @@ public class KeyValueEngineDao<V> extends AbstractDao<V> {
         return (V) binarySerializator.deserialize(cursor.isNull(1) ? null : cursor.getBlob(1));
     }
 
+    @Override
+    protected int getBytesColumn() {
+        return 1;
+    }
+
     @Override
     protected void deleteByKeyInsideSynchronized(long id, SQLiteStatement stmt) {
         stmt.clearBindings();
@@ -61,17 +66,52 @@ public class KeyValueEngineDao<V> extends AbstractDao<V> {
     @Override
     public ArrayList<V> getAll() {
         final String stmt = statements.getAllStatement();
-        return loadAllAndCloseCursor(db.rawQuery(stmt, null));
+        return queryAll(stmt, null);
+    }
+
+    /**
+     * Load items with ids greater than afterId ordered by id
+     */
+    public ArrayList<V> getNextSlice(int limit, long afterId) {
+        final String stmt = ((KeyValueEngineTableStatements) statements).getSliceAfterStatement();
+        return queryAll(stmt,
+                new String[]{
+                        String.valueOf(afterId),
+                        String.valueOf(limit)
+                }
+        );
     }
 
     @Override
     public V getById(long id) {
         final String stmt = statements.getGetByIdStatement();
 
-        return loadSingleAndCloseCursor(db.rawQuery(stmt,
+        return querySingle(stmt,
                 new String[]{
                         String.valueOf(id)
                 }
-        ));
+        );
+    }
+
+    /**
+     * Load items with specified ids by chunks of IN (...) queries using one read connection
+     */
+    public ArrayList<V> getByIds(long[] ids) {
+        final KeyValueEngineTableStatements keyValueStatements = (KeyValueEngineTableStatements) statements;
+        final ArrayList<V> res = new ArrayList<V>(ids.length);
+        final SQLiteDatabase readDb = acquireReadDb();
+        try {
+            for (int offset = 0; offset < ids.length; offset += KeyValueEngineTableStatements.GET_BY_IDS_CHUNK) {
+                final int count = Math.min(KeyValueEngineTableStatements.GET_BY_IDS_CHUNK, ids.length - offset);
+                final String[] args = new String[count];
+                for (int i = 0; i < count; i++) {
+                    args[i] = String.valueOf(ids[offset + i]);
+                }
+                res.addAll(loadAllAndCloseCursor(readDb.rawQuery(keyValueStatements.getGetByIdsStatement(count), args)));
+            }
+        } finally {
+            releaseReadDb(readDb);
+        }
+        return res;
     }
 }
@@ -7,6 +7,12 @@ import android.database.sqlite.SQLiteStatement;
 import com.droidkit.engine._internal.sqlite.SqlStatements;
 
 public class KeyValueEngineTableStatements implements SqlStatements {
+
+    /**
+     * Maximum number of ids in one IN (...) query, SQLite limits number of arguments to 999
+     */
+    public static final int GET_BY_IDS_CHUNK = 500;
+
     private final SQLiteDatabase db;
     private final String tablename;
 
@@ -16,7 +22,9 @@ public class KeyValueEngineTableStatements implements SqlStatements {
     private SQLiteStatement deleteStatement;
 
     private String getByIdStatement;
+    private String getByIdsStatement;
     private String allStatement;
+    private String sliceAfterStatement;
 
     public KeyValueEngineTableStatements(SQLiteDatabase db, String tablename) {
         this.db = db;
@@ -54,11 +62,36 @@ public class KeyValueEngineTableStatements implements SqlStatements {
         return getByIdStatement;
     }
 
+    /**
+     * Statement selecting items with count ids, statement for the full chunk size is cached
+     */
+    public String getGetByIdsStatement(int count) {
+        if (count == GET_BY_IDS_CHUNK && getByIdsStatement != null) {
+            return getByIdsStatement;
+        }
+        final StringBuilder sql = new StringBuilder(String.format("SELECT * FROM '%s' WHERE ID IN (", tablename));
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(")");
+        if (count == GET_BY_IDS_CHUNK) {
+            getByIdsStatement = sql.toString();
+        }
+        return sql.toString();
+    }
+
     public String getAllStatement() {
         if(allStatement == null) {
             allStatement = String.format("SELECT * FROM '%s'", tablename);
         }
         return allStatement;
     }
+
+    public String getSliceAfterStatement() {
+        if (sliceAfterStatement == null) {
+            sliceAfterStatement = String.format("SELECT * FROM '%s' WHERE ID>? ORDER BY ID ASC LIMIT ?", tablename);
+        }
+        return sliceAfterStatement;
+    }
 }
 
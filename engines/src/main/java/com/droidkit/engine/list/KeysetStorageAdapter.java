@@ -0,0 +1,15 @@
+package com.droidkit.engine.list;
+
+import java.util.ArrayList;
+
+/**
+ * Optional interface of list StorageAdapter supporting keyset pagination.
+ * ListEngine loads slices of other storages by offset.
+ */
+public interface KeysetStorageAdapter<V> {
+
+    /**
+     * Load slice of items following item with specified sortKey and id in storage order
+     */
+    ArrayList<V> loadListSlice(int limit, long afterSortKey, long afterId);
+}
@@ -0,0 +1,67 @@
+package com.droidkit.engine.list;
+
+/**
+ * Single change of ListEngine in-memory list.
+ * Positions are relative to the list state after all previous changes of the same ListChangeSet were applied.
+ */
+public class ListChange {
+
+    public static final int TYPE_INSERT = 0;
+    public static final int TYPE_REMOVE = 1;
+    public static final int TYPE_MOVE = 2;
+    public static final int TYPE_CHANGE = 3;
+
+    private final int type;
+    private final int position;
+    private final int count;
+    private final int toPosition;
+
+    ListChange(int type, int position, int count, int toPosition) {
+        this.type = type;
+        this.position = position;
+        this.count = count;
+        this.toPosition = toPosition;
+    }
+
+    /**
+     * @return one of TYPE_INSERT, TYPE_REMOVE, TYPE_MOVE and TYPE_CHANGE
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * @return first position of inserted, removed or changed range, or source position of moved item
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return size of range, always 1 for TYPE_MOVE
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return target position of moved item, -1 for other types
+     */
+    public int getToPosition() {
+        return toPosition;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case TYPE_INSERT:
+                return "Insert{" + position + ", " + count + "}";
+            case TYPE_REMOVE:
+                return "Remove{" + position + ", " + count + "}";
+            case TYPE_MOVE:
+                return "Move{" + position + " -> " + toPosition + "}";
+            default:
+                return "Change{" + position + ", " + count + "}";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.droidkit.engine.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered changes between two published versions of ListEngine in-memory list,
+ * sent with LIST_ENGINE_UI_LIST_CHANGES event.
+ * Changes are computed in list actor and can be applied one by one to adapter
+ * (e.g. notifyItemRangeInserted, notifyItemRangeRemoved, notifyItemMoved and notifyItemRangeChanged).
+ * Neighbour changes of the same type are merged to ranges.
+ */
+public class ListChangeSet {
+
+    private final long fromVersion;
+
+    private long toVersion;
+
+    private final ArrayList<ListChange> changes = new ArrayList<ListChange>();
+
+    ListChangeSet(long fromVersion) {
+        this.fromVersion = fromVersion;
+        this.toVersion = fromVersion;
+    }
+
+    /**
+     * @return version of snapshot changes are applied to
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * @return version of snapshot after all changes
+     */
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    public List<ListChange> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    void setToVersion(long toVersion) {
+        this.toVersion = toVersion;
+    }
+
+    void insert(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ListChange last = last();
+        if (last != null && last.getType() == ListChange.TYPE_INSERT
+                && position >= last.getPosition() && position <= last.getPosition() + last.getCount()) {
+            replaceLast(new ListChange(ListChange.TYPE_INSERT, last.getPosition(), last.getCount() + count, -1));
+        } else {
+            changes.add(new ListChange(ListChange.TYPE_INSERT, position, count, -1));
+        }
+    }
+
+    void remove(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ListChange last = last();
+        if (last != null && last.getType() == ListChange.TYPE_REMOVE
+                && position <= last.getPosition() && position + count >= last.getPosition()) {
+            replaceLast(new ListChange(ListChange.TYPE_REMOVE, position, last.getCount() + count, -1));
+        } else {
+            changes.add(new ListChange(ListChange.TYPE_REMOVE, position, count, -1));
+        }
+    }
+
+    void move(int fromPosition, int toPosition) {
+        if (fromPosition != toPosition) {
+            changes.add(new ListChange(ListChange.TYPE_MOVE, fromPosition, 1, toPosition));
+        }
+    }
+
+    void change(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ListChange last = last();
+        if (last != null && last.getType() == ListChange.TYPE_CHANGE
+                && position <= last.getPosition() + last.getCount() && position + count >= last.getPosition()) {
+            int start = Math.min(position, last.getPosition());
+            int end = Math.max(position + count, last.getPosition() + last.getCount());
+            replaceLast(new ListChange(ListChange.TYPE_CHANGE, start, end - start, -1));
+        } else {
+            changes.add(new ListChange(ListChange.TYPE_CHANGE, position, count, -1));
+        }
+    }
+
+    /**
+     * Append changes of next version
+     */
+    void append(ListChangeSet next) {
+        for (ListChange c : next.changes) {
+            switch (c.getType()) {
+                case ListChange.TYPE_INSERT:
+                    insert(c.getPosition(), c.getCount());
+                    break;
+                case ListChange.TYPE_REMOVE:
+                    remove(c.getPosition(), c.getCount());
+                    break;
+                case ListChange.TYPE_MOVE:
+                    move(c.getPosition(), c.getToPosition());
+                    break;
+                default:
+                    change(c.getPosition(), c.getCount());
+                    break;
+            }
+        }
+        toVersion = next.toVersion;
+    }
+
+    private ListChange last() {
+        return changes.isEmpty() ? null : changes.get(changes.size() - 1);
+    }
+
+    private void replaceLast(ListChange change) {
+        changes.set(changes.size() - 1, change);
+    }
+
+    @Override
+    public String toString() {
+        return "ListChangeSet{" + fromVersion + " -> " + toVersion + ", " + changes + "}";
+    }
+}
@@ -1,21 +1,34 @@
 package com.droidkit.engine.list;
 
-import android.os.Message;
-import android.os.SystemClock;
-
 import com.droidkit.actors.*;
 import com.droidkit.engine.Engines;
+import com.droidkit.engine._internal.GroupCommitter;
+import com.droidkit.engine._internal.PendingCommit;
 import com.droidkit.engine._internal.RunnableActor;
-import com.droidkit.engine._internal.util.Utils;
+import com.droidkit.engine._internal.util.ConcurrentLongHashMap;
+import com.droidkit.engine._internal.util.PersistentSortedList;
+import com.droidkit.engine.common.CommitHandle;
 import com.droidkit.engine.common.ValueCallback;
+import com.droidkit.engine.common.ValuesCallback;
 import com.droidkit.engine.event.Events;
 import com.droidkit.engine.event.NotificationCenter;
-import com.droidkit.engine._internal.util.SortedArrayList;
-
+import com.droidkit.engine.metrics.EngineMetrics;
+import com.droidkit.engine.metrics.Gauge;
+import com.droidkit.engine.metrics.LatencyHistogram;
+import com.droidkit.engine.platform.Cache;
+import com.droidkit.engine.platform.Platform;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ListEngine<V> {
@@ -26,6 +39,11 @@ public class ListEngine<V> {
 
     private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
 
+    /**
+     * Minimal interval between list publications, one display frame
+     */
+    private static final long FRAME_DELAY = 16;
+
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -33,19 +51,23 @@ public class ListEngine<V> {
     /**
      * Map for storing values
      */
-    protected final ConcurrentHashMap<Long, V> inMemoryMap;
+    protected final ConcurrentLongHashMap<V> inMemoryMap;
 
+    /**
+     * Map for storing not deserialized values in lazy deserialization mode
+     */
+    protected final ConcurrentLongHashMap<RawItem> inMemoryRawMap;
 
     /**
-     * List for storing values, always synchronized with inMemorySortedList2
+     * Cache of deserialized values of RawItems, null if lazy deserialization is disabled
      */
-    protected final SortedArrayList<V> inMemorySortedList1;
+    protected volatile Cache<RawItem, V> materializedCache = null;
 
 
     /**
-     * List for storing values, always synchronized with inMemorySortedList1
+     * Sorted list for storing values, modified only in listActor
      */
-    protected final SortedArrayList<V> inMemorySortedList2;
+    protected final InMemoryList<V> inMemoryList;
 
 
     /**
@@ -53,6 +75,11 @@ public class ListEngine<V> {
      */
     protected final StorageAdapter storageAdapter;
 
+    /**
+     * The same object as storageAdapter, with optional storage operations
+     */
+    private final MeasuredStorageAdapter<V> storage;
+
     /**
      * Id used in sending of NotificationCenter events
      */
@@ -64,20 +91,47 @@ public class ListEngine<V> {
     protected final ActorRef listActor;
 
     /**
-     * Loop for all database operations
+     * Loop for all database writes
      */
     protected final ActorRef dbActor;
 
+    /**
+     * Loop for database reads, works in parallel with reads of other engines
+     */
+    protected final ActorRef readActor;
+
     /**
      * Ui Notifications actor
      */
     protected final ActorRef uiActor;
 
+    /**
+     * Queue of writes committed by groups in dbActor
+     */
+    protected final GroupCommitter committer;
+
     /**
      * Adapter of data for Engine
      */
     protected final DataAdapter<V> dataAdapter;
 
+    /**
+     * File with first items of list for fast startup, null if disabled
+     */
+    protected final File startupSnapshotFile;
+
+    protected final int startupSnapshotSize;
+
+    /**
+     * Time of applying queued modifications to in-memory list in listActor
+     */
+    private final LatencyHistogram applyTime;
+
+    /**
+     * Time between publication of new list version and switching ui to it
+     */
+    private final LatencyHistogram uiSwapWait;
+
     /**
      * Creating ListEngine instance
      *
@@ -86,36 +140,154 @@ public class ListEngine<V> {
      */
     public ListEngine(final StorageAdapter storageAdapter,
                       final DataAdapter<V> dataAdapter) {
+        this(storageAdapter, dataAdapter, null, 0);
+    }
+
+    /**
+     * Creating ListEngine instance with startup snapshot: first snapshotSize items of list are saved
+     * to snapshotFile on flush() and are read from it in constructor, so they are available
+     * before database is opened. Snapshot is checked against database with first slice loading.
+     *
+     * @param storageAdapter storage adapter
+     * @param dataAdapter    data adapter
+     * @param snapshotFile   file of startup snapshot, null to disable snapshot
+     * @param snapshotSize   number of items in snapshot, should be equal to size of first slice
+     */
+    public ListEngine(final StorageAdapter storageAdapter,
+                      final DataAdapter<V> dataAdapter,
+                      final File snapshotFile,
+                      final int snapshotSize) {
 
         this.listEngineId = NEXT_ID.getAndIncrement();
 
-        Comparator<V> comparator = new Comparator<V>() {
+        this.inMemoryList = new InMemoryList<V>(this, dataAdapter);
+        this.uiSnapshot = new ListSnapshot<V>(0, inMemoryList.getList(), this);
+        this.publishedSnapshot = uiSnapshot;
+
+        this.inMemoryMap = new ConcurrentLongHashMap<V>();
+        this.inMemoryRawMap = new ConcurrentLongHashMap<RawItem>();
+        this.storage = new MeasuredStorageAdapter<V>(storageAdapter, dataAdapter, "list_" + listEngineId + ".db");
+        this.storageAdapter = storage;
+        this.dataAdapter = dataAdapter;
+
+        this.startupSnapshotFile = snapshotFile;
+        this.startupSnapshotSize = snapshotSize;
+
+        dbActor = ActorSystem.system().actorOf(db());
+        readActor = ActorSystem.system().actorOf(dbRead());
+        listActor = ActorSystem.system().actorOf(memoryList());
+        uiActor = ActorSystem.system().actorOf(ui());
+        committer = new GroupCommitter(dbActor, storageAdapter) {
             @Override
-            public int compare(V lhs, V rhs) {
-                long lKey = dataAdapter.getSortKey(lhs);
-                long rKey = dataAdapter.getSortKey(rhs);
-
-                if (lKey > rKey) {
-                    return 1;
-                } else if (lKey < rKey) {
-                    return -1;
-                } else {
-                    return 0;
-                }
+            protected void runInTransaction(Runnable runnable) {
+                storage.runInTransaction(runnable);
             }
         };
 
-        this.inMemorySortedList1 = new SortedArrayList<V>(comparator);
-        this.inMemorySortedList2 = new SortedArrayList<V>(comparator);
-        this.inMemorySortedList = inMemorySortedList1;
+        applyTime = EngineMetrics.histogram("list_" + listEngineId + ".list.apply");
+        uiSwapWait = EngineMetrics.histogram("list_" + listEngineId + ".ui.swap_wait");
+        EngineMetrics.registerGauge("list_" + listEngineId + ".queue.db", new QueueGauge(this, QueueGauge.DB));
+        EngineMetrics.registerGauge("list_" + listEngineId + ".queue.list", new QueueGauge(this, QueueGauge.LIST));
+        EngineMetrics.registerGauge("list_" + listEngineId + ".queue.ui", new QueueGauge(this, QueueGauge.UI));
 
-        this.inMemoryMap = new ConcurrentHashMap<Long, V>();
-        this.storageAdapter = storageAdapter;
-        this.dataAdapter = dataAdapter;
+        if (snapshotFile != null && snapshotSize > 0) {
+            loadStartupSnapshot();
+        }
+    }
 
-        dbActor = ActorSystem.system().actorOf(db());
-        listActor = ActorSystem.system().actorOf(memoryList());
-        uiActor = ActorSystem.system().actorOf(RunnableActor.class, "engines_notify");
+    /**
+     * Put items of startup snapshot to list before any actor starts working with it
+     * and check them with database in readActor
+     */
+    private void loadStartupSnapshot() {
+        final ArrayList<RawItem> items = StartupSnapshotFile.read(startupSnapshotFile);
+        if (items.isEmpty()) {
+            return;
+        }
+
+        final ArrayList<V> values = new ArrayList<V>(items.size());
+        for (RawItem item : items) {
+            final V value = dataAdapter.deserialize(item.getBytes());
+            if (value != null) {
+                values.add(value);
+                inMemoryMap.put(dataAdapter.getId(value), value);
+            }
+        }
+        inMemoryList.addOrReplaceAll(values);
+        inMemoryList.takeChanges(++lastVersion);
+        uiSnapshot = new ListSnapshot<V>(lastVersion, inMemoryList.getList(), this);
+        publishedSnapshot = uiSnapshot;
+
+        read(new Runnable() {
+            @Override
+            public void run() {
+                reconcileStartupSnapshot(values);
+            }
+        });
+    }
+
+    /**
+     * Replace items of startup snapshot with first slice from database, called only in readActor
+     */
+    private void reconcileStartupSnapshot(ArrayList<V> snapshotValues) {
+        synchronized (dbCursorLock) {
+            if (hasDbCursor || currentDbOffset > 0) {
+                // First slice is already loaded
+                return;
+            }
+        }
+        final HashMap<Long, V> stale = new HashMap<Long, V>();
+        for (V value : snapshotValues) {
+            stale.put(dataAdapter.getId(value), value);
+        }
+
+        try {
+            final ArrayList<V> list = loadListSlice(startupSnapshotSize, Platform.get().uptimeMillis());
+            if (list == null) {
+                // List was cleared while slice was loading
+                return;
+            }
+            for (V value : list) {
+                stale.remove(dataAdapter.getId(value));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        // Items that are not in database anymore and were not updated after startup
+        for (final Map.Entry<Long, V> e : stale.entrySet()) {
+            if (inMemoryMap.remove(e.getKey(), e.getValue())) {
+                modifyInMemoryList(new InMemoryListModification<V>() {
+                    @Override
+                    public void modify(InMemoryList<V> list) {
+                        list.removeById(e.getKey());
+                    }
+                }, -1);
+            }
+        }
+    }
+
+    /**
+     * Save first items of list in load order to startup snapshot, called only in dbActor
+     */
+    private void saveStartupSnapshot() {
+        final ListSnapshot<V> snapshot = uiSnapshot;
+        final int count = Math.min(startupSnapshotSize, snapshot.size());
+        final ArrayList<RawItem> items = new ArrayList<RawItem>(count);
+        for (int i = 0; i < count; i++) {
+            final int index = isSliceGrowingAtStart ? snapshot.size() - 1 - i : i;
+            final V value = snapshot.get(index);
+            if (value == null) {
+                // Evicted values break continuity of snapshot
+                break;
+            }
+            final byte[] bytes = dataAdapter.serialize(value);
+            if (bytes != null) {
+                items.add(new RawItem(snapshot.getId(index), snapshot.getSortKey(index), bytes));
+            }
+        }
+        StartupSnapshotFile.write(startupSnapshotFile, items);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -124,9 +296,129 @@ public class ListEngine<V> {
 
     protected volatile int currentDbOffset = 0;
 
+    /**
+     * Sort key and id of last item of last loaded slice, next slice is loaded right after it.
+     * Storages not implementing {@link KeysetStorageAdapter} are always read by currentDbOffset.
+     */
+    protected volatile long lastDbSortKey;
+
+    protected volatile long lastDbId;
+
+    protected volatile boolean hasDbCursor = false;
+
+    /**
+     * Guards db cursor: slices are loaded in readActor while list may be cleared from any thread.
+     * Cursor fields and in-memory list are changed together under this lock.
+     */
+    private final Object dbCursorLock = new Object();
+
+    /**
+     * Incremented on every clearing, slices loaded before clearing are dropped
+     */
+    private int dbCursorGeneration = 0;
+
+    /**
+     * Maximum number of values kept in memory, 0 if all loaded values are kept
+     */
+    protected volatile int memoryWindow = 0;
+
+    /**
+     * Item the memory window is built around, follows positions requested by ui.
+     * Item is kept instead of position, so window doesn't drift when items are inserted before it.
+     * Null for the start of list.
+     */
+    protected volatile WindowCenter memoryWindowCenter = null;
+
+    private final AtomicBoolean isTrimScheduled = new AtomicBoolean(false);
+
+    private final AtomicBoolean isWindowReloadInProgress = new AtomicBoolean(false);
+
+    /**
+     * Minimal page size of automatic prefetch, 0 if prefetch is disabled
+     */
+    protected volatile int prefetchPageSize = 0;
+
+    /**
+     * True if slices are loaded in descending order and new slices appear at the start of in-memory list
+     */
+    protected volatile boolean isSliceGrowingAtStart = false;
+
+    /**
+     * Average time from slice request to its publication
+     */
+    protected volatile long averageSliceLoadTime = FRAME_DELAY * 2;
+
+    // Access tracking, used only in ui thread
+    private int lastAccessPosition = -1;
+    private long lastAccessTime = 0;
+    private float accessSpeed = 0;
+
     protected volatile boolean isDbSliceLoadingInProgress = false;
 
-    protected volatile SortedArrayList<V> inMemorySortedList;
+    /**
+     * Version of list published to ui, replaced only in uiActor
+     */
+    protected volatile ListSnapshot<V> uiSnapshot;
+
+    /**
+     * Last version of list published by listActor
+     */
+    protected volatile ListSnapshot<V> publishedSnapshot;
+
+    /**
+     * Version of last list modification, used only in listActor
+     */
+    private long lastVersion = 0;
+
+    /**
+     * Time of last list publication, used only in listActor
+     */
+    private long lastPublishTime = 0;
+
+    /**
+     * Modifications waiting for listActor
+     */
+    private final ConcurrentLinkedQueue<ChangeList<V>> pendingChanges = new ConcurrentLinkedQueue<ChangeList<V>>();
+
+    private final AtomicBoolean isFlushScheduled = new AtomicBoolean(false);
+
+    private final AtomicBoolean isUiUpdateScheduled = new AtomicBoolean(false);
+
+    /**
+     * Changes published by listActor, but not delivered to ui yet
+     */
+    private ListChangeSet pendingUiChanges = null;
+
+    private int pendingUiChangeSize = 0;
+
+    /**
+     * Start of waiting of pending changes for ui, 0 if metrics are disabled
+     */
+    private long pendingUiSince = 0;
+
+    private final Object pendingUiSync = new Object();
+
+    /**
+     * Delay of write-behind buffer, 0 if every modification is written to storage immediately
+     */
+    protected volatile long writeBehindDelay = 0;
+
+    /**
+     * Number of buffered writes that causes immediate flush
+     */
+    protected volatile int writeBehindMaxSize = 0;
+
+    /**
+     * Buffered writes by id, only last write of every id is kept
+     */
+    private final LinkedHashMap<Long, PendingWrite<V>> pendingWrites = new LinkedHashMap<Long, PendingWrite<V>>();
+
+    private final AtomicBoolean isWriteFlushScheduled = new AtomicBoolean(false);
+
+    /**
+     * Handle of all writes in buffer, replaced on every buffer flush
+     */
+    private PendingCommit pendingWritesHandle = new PendingCommit();
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -137,19 +429,29 @@ public class ListEngine<V> {
         return listEngineId;
     }
 
-    public synchronized void addItem(final V value) {
-        addOrUpdateItem(value, false, true);
+    /**
+     * Remove metrics of engine from EngineMetrics, engine shouldn't be used after this call
+     */
+    public void dispose() {
+        EngineMetrics.unregisterAll("list_" + listEngineId + ".");
+    }
+
+    public synchronized CommitHandle addItem(final V value) {
+        return addOrUpdateItem(value, false, true);
     }
 
-    public synchronized void updateItem(final V value) {
-        addOrUpdateItem(value, true, false);
+    public synchronized CommitHandle updateItem(final V value) {
+        return addOrUpdateItem(value, true, false);
     }
 
-    public synchronized void addOrUpdateItem(final V value) {
-        addOrUpdateItem(value, true, true);
+    public synchronized CommitHandle addOrUpdateItem(final V value) {
+        return addOrUpdateItem(value, true, true);
     }
 
-    protected synchronized void addOrUpdateItem(final V value, boolean update, final boolean add) {
+    /**
+     * @return handle resolved when value is committed to storage
+     */
+    protected synchronized CommitHandle addOrUpdateItem(final V value, boolean update, final boolean add) {
 
         final boolean isAddOnly = !update && add;
         final boolean isUpdateOnly = update && !add;
@@ -159,27 +461,21 @@ public class ListEngine<V> {
 
         modifyInMemoryList(new InMemoryListModification<V>() {
             @Override
-            public void modify(SortedArrayList<V> list) {
-                if (isAddOrUpdate || isUpdateOnly) {
-                    Iterator<V> it = list.iterator();
-                    while (it.hasNext()) {
-                        V value = it.next();
-                        if (dataAdapter.getId(value) == id) {
-                            it.remove();
-                            break;
-                        }
-                    }
-                }
-                list.add(value);
+            public void modify(InMemoryList<V> list) {
+                list.addOrReplace(value);
             }
         }, 1);
 
         inMemoryMap.put(id, value);
+        inMemoryRawMap.remove(id);
 
-        dbActor.send(new Runnable() {
+        if (writeBehindDelay > 0) {
+            return bufferWrite(id, value, PendingWrite.TYPE_REPLACE);
+        }
+
+        return committer.submit(new Runnable() {
             @Override
             public void run() {
-                final long dbStart = SystemClock.uptimeMillis();
                 if (isUpdateOnly || isAddOrUpdate) {
                     storageAdapter.insertOrReplaceSingle(value);
                 } else if (isAddOnly) {
@@ -189,164 +485,471 @@ public class ListEngine<V> {
         });
     }
 
-    public synchronized void addItems(final ArrayList<V> values) {
-        addOrUpdateItems(values, false, true);
+    public synchronized CommitHandle addItems(final ArrayList<V> values) {
+        return addOrUpdateItems(values, false, true);
     }
 
-    public synchronized void updateItems(final ArrayList<V> values) {
-        addOrUpdateItems(values, true, false);
+    public synchronized CommitHandle updateItems(final ArrayList<V> values) {
+        return addOrUpdateItems(values, true, false);
     }
 
-    public synchronized void addOrUpdateItems(final ArrayList<V> values) {
-        addOrUpdateItems(values, true, true);
+    public synchronized CommitHandle addOrUpdateItems(final ArrayList<V> values) {
+        return addOrUpdateItems(values, true, true);
     }
 
-    protected synchronized void addOrUpdateItems(final ArrayList<V> values, boolean update, final boolean add) {
+    /**
+     * @return handle resolved when values are committed to storage
+     */
+    protected synchronized CommitHandle addOrUpdateItems(final ArrayList<V> values, boolean update, final boolean add) {
 
         final boolean isAddOnly = !update && add;
         final boolean isUpdateOnly = update && !add;
         final boolean isAddOrUpdate = update && add;
 
-        final ArrayList<V> toRemove = new ArrayList<V>();
-
         for (V val : values) {
             final long id = dataAdapter.getId(val);
-            final V originalValue = inMemoryMap.get(id);
+            final boolean isInMemory = inMemoryMap.containsKey(id) || inMemoryRawMap.containsKey(id);
 
-            if ((originalValue != null && isUpdateOnly) || isAddOnly || isAddOrUpdate) {
-                if (originalValue != null && isAddOrUpdate || isUpdateOnly) {
-                    toRemove.add(originalValue);
-                }
+            if ((isInMemory && isUpdateOnly) || isAddOnly || isAddOrUpdate) {
                 inMemoryMap.put(id, val);
+                inMemoryRawMap.remove(id);
             }
         }
 
         modifyInMemoryList(new InMemoryListModification<V>() {
             @Override
-            public void modify(SortedArrayList<V> list) {
-                list.removeAll(toRemove);
-                list.addAll(values);
+            public void modify(InMemoryList<V> list) {
+                list.addOrReplaceAll(values);
             }
         }, values.size());
 
-        dbActor.send(new Runnable() {
+        if (writeBehindDelay > 0) {
+            CommitHandle handle = null;
+            for (V val : values) {
+                handle = bufferWrite(dataAdapter.getId(val), val, PendingWrite.TYPE_REPLACE);
+            }
+            if (handle == null) {
+                handle = PendingCommit.committed();
+            }
+            // Buffers are committed in order, so last handle covers all values
+            return handle;
+        }
+
+        return committer.submit(new Runnable() {
             @Override
             public void run() {
-                final long dbStart = SystemClock.uptimeMillis();
                 if (isUpdateOnly || isAddOrUpdate) {
                     storageAdapter.insertOrReplaceBatch(values);
                 } else if (isAddOnly) {
                     storageAdapter.insertBatch(values);
                 }
-                // showDebugToast("addOrUpdateItems DB: " + (SystemClock.uptimeMillis() - dbStart) + "ms");
+            }
+        });
+    }
+
+    /**
+     * @return handle resolved when removal is committed to storage
+     */
+    public synchronized CommitHandle removeItem(final long key) {
+        inMemoryMap.remove(key);
+        inMemoryRawMap.remove(key);
+        // Item may be in list without value after eviction, so only list knows if it is removed
+        modifyInMemoryList(new CountedModification<V>() {
+            @Override
+            protected int apply(InMemoryList<V> list) {
+                return list.removeById(key) ? -1 : 0;
+            }
+        });
+
+        if (writeBehindDelay > 0) {
+            return bufferWrite(key, null, PendingWrite.TYPE_DELETE);
+        }
 
+        return committer.submit(new Runnable() {
+            @Override
+            public void run() {
+                storageAdapter.deleteSingle(key);
             }
         });
     }
 
-    public synchronized void removeItem(final long key) {
-        final V val = inMemoryMap.remove(key);
-        if (val != null) {
-            modifyInMemoryList(new InMemoryListModification<V>() {
-                @Override
-                public void modify(SortedArrayList<V> list) {
-                    Iterator<V> it = list.iterator();
-                    while (it.hasNext()) {
-                        V value = it.next();
-                        if (dataAdapter.getId(value) == key) {
-                            it.remove();
-                            break;
-                        }
+    /**
+     * Remove many items with one modification of in-memory list and one storage transaction
+     *
+     * @return handle resolved when removal is committed to storage
+     */
+    public synchronized CommitHandle removeItems(final long[] keys) {
+        final ArrayList<Long> ids = new ArrayList<Long>(keys.length);
+        for (long key : keys) {
+            ids.add(key);
+            inMemoryMap.remove(key);
+            inMemoryRawMap.remove(key);
+        }
+
+        modifyInMemoryList(new CountedModification<V>() {
+            @Override
+            protected int apply(InMemoryList<V> list) {
+                int removedCount = 0;
+                for (long key : keys) {
+                    if (list.removeById(key)) {
+                        removedCount++;
                     }
                 }
-            }, -1);
+                return -removedCount;
+            }
+        });
+
+        if (writeBehindDelay > 0) {
+            CommitHandle handle = null;
+            for (long key : keys) {
+                handle = bufferWrite(key, null, PendingWrite.TYPE_DELETE);
+            }
+            if (handle == null) {
+                handle = PendingCommit.committed();
+            }
+            return handle;
         }
 
-        dbActor.send(new Runnable() {
+        return committer.submit(new Runnable() {
             @Override
             public void run() {
-                storageAdapter.deleteSingle(key);
+                storageAdapter.deleteBatch(ids);
             }
         });
     }
 
-    public synchronized int getCountInMemoryList() {
-        return getActiveList().size();
+    /**
+     * Enable write-behind buffer: modifications are not written to storage one by one, but are
+     * collected for delay ms and written with batch operations. Several writes of the same id
+     * are collapsed to the last one. Buffered additions are written as insert or replace,
+     * as they are applied to in-memory list, so one existing id doesn't fail the whole buffer.
+     * Slices and values are loaded from storage only after buffered writes are written.
+     * Writes buffered before the call are written immediately.
+     *
+     * @param delay   maximum time of keeping write in buffer in ms, 0 to disable buffer
+     * @param maxSize number of buffered writes that are written immediately
+     */
+    public void setWriteBehind(long delay, int maxSize) {
+        this.writeBehindMaxSize = maxSize;
+        this.writeBehindDelay = Math.max(delay, 0);
+        // Writes buffered with previous delay are written now, next write schedules flush with new delay
+        flushBufferedWrites();
+        isWriteFlushScheduled.set(false);
     }
 
-    public synchronized void loadNextListSlice(final int limit) {
-        if (!isDbSliceLoadingInProgress && lastSliceSize > 0) {
-            isDbSliceLoadingInProgress = true;
+    /**
+     * Write all buffered modifications to storage as soon as possible and update startup snapshot.
+     * Should be called when application goes to background.
+     */
+    public void flush() {
+        dbActor.send(new Runnable() {
+            @Override
+            public void run() {
+                flushWrites();
+                if (startupSnapshotFile != null && startupSnapshotSize > 0) {
+                    saveStartupSnapshot();
+                }
+            }
+        });
+    }
 
+    /**
+     * Write buffered modifications without waiting for write-behind delay, startup snapshot is not saved
+     */
+    private void flushBufferedWrites() {
+        dbActor.send(new Runnable() {
+            @Override
+            public void run() {
+                flushWrites();
+            }
+        });
+    }
 
+    /**
+     * Run read in readActor after all buffered and queued writes are committed
+     */
+    private void read(final Runnable read) {
+        final boolean hasBufferedWrites;
+        synchronized (pendingWrites) {
+            hasBufferedWrites = !pendingWrites.isEmpty();
+        }
+        if (hasBufferedWrites) {
             dbActor.send(new Runnable() {
                 @Override
                 public void run() {
-                    try {
-                        // Logger.d(TAG, "Loading new slice: offset:" + currentDbOffset + ", limit:" + limit);
-                        final long start = SystemClock.uptimeMillis();
-
-                        final ArrayList<V> list = storageAdapter.loadListSlice(limit, currentDbOffset);
-
-                        if (list != null) {
-                            lastSliceSize = list.size();
-                            currentDbOffset += lastSliceSize;
-
-                            // Logger.d(TAG, "Loaded " + lastSliceSize + " items in " + (SystemClock.uptimeMillis() - start) + "ms");
-                            // showDebugToast("loadNextListSlice(" + limit + ") in " + (SystemClock.uptimeMillis() - start) + "ms");
-
-                            modifyInMemoryList(new InMemoryListModification<V>() {
-                                @Override
-                                public void modify(SortedArrayList<V> targetList) {
-                                    targetList.addAll(list);
-                                }
-                            }, list.size());
-
-                            for (V val : list) {
-                                inMemoryMap.put(dataAdapter.getId(val), val);
-                            }
-                        }
-
-                    } catch (Exception e) {
-                        // Logger.e(TAG, "Error loading DB slice", e);
-                        e.printStackTrace();
-                    }
-                    isDbSliceLoadingInProgress = false;
+                    flushWrites();
+                    readActor.send(read);
                 }
             });
+        } else {
+            committer.read(readActor, read);
         }
     }
 
-    public synchronized void loadAll() {
-        if (!isDbSliceLoadingInProgress && lastSliceSize > 0) {
-            isDbSliceLoadingInProgress = true;
+    /**
+     * @return handle of buffer with write
+     */
+    private CommitHandle bufferWrite(long id, V value, int type) {
+        final int size;
+        final CommitHandle handle;
+        synchronized (pendingWrites) {
+            handle = pendingWritesHandle;
+            pendingWrites.remove(id);
+            pendingWrites.put(id, new PendingWrite<V>(type, value));
+            size = pendingWrites.size();
+        }
 
+        if (writeBehindMaxSize > 0 && size >= writeBehindMaxSize) {
+            flushBufferedWrites();
+        } else if (isWriteFlushScheduled.compareAndSet(false, true)) {
             dbActor.send(new Runnable() {
                 @Override
                 public void run() {
-                    try {
-                        // Logger.d(TAG, "Loading whole list");
-                        final long start = SystemClock.uptimeMillis();
-
-                        final ArrayList<V> list = storageAdapter.loadAll();
-
-                        if (list != null) {
-                            lastSliceSize = list.size();
-                            currentDbOffset += lastSliceSize;
+                    isWriteFlushScheduled.set(false);
+                    flushWrites();
+                }
+            }, writeBehindDelay);
+        }
+        return handle;
+    }
 
-                            // Logger.d(TAG, "Loaded " + lastSliceSize + " items in " + (SystemClock.uptimeMillis() - start) + "ms");
-                            // showDebugToast("loadAll() in " + (SystemClock.uptimeMillis() - start) + "ms");
+    /**
+     * Write buffered modifications with batch operations and commit all queued writes,
+     * called only in dbActor before reads from storage
+     */
+    @SuppressWarnings("unchecked")
+    private void flushWrites() {
+        final ArrayList<V> replaces = new ArrayList<V>();
+        final ArrayList<Long> deletes = new ArrayList<Long>();
+        final PendingCommit handle;
+        synchronized (pendingWrites) {
+            if (pendingWrites.isEmpty()) {
+                committer.commitPending();
+                return;
+            }
+            for (Map.Entry<Long, PendingWrite<V>> e : pendingWrites.entrySet()) {
+                final PendingWrite<V> write = e.getValue();
+                if (write.type == PendingWrite.TYPE_REPLACE) {
+                    replaces.add(write.value);
+                } else {
+                    deletes.add(e.getKey());
+                }
+            }
+            pendingWrites.clear();
+            handle = pendingWritesHandle;
+            pendingWritesHandle = new PendingCommit();
+        }
 
-                            modifyInMemoryList(new InMemoryListModification<V>() {
-                                @Override
-                                public void modify(SortedArrayList<V> targetList) {
-                                    targetList.clear();
-                                    targetList.addAll(list);
-                                }
-                            }, list.size());
+        committer.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!deletes.isEmpty()) {
+                    storageAdapter.deleteBatch(deletes);
+                }
+                if (!replaces.isEmpty()) {
+                    storageAdapter.insertOrReplaceBatch(replaces);
+                }
+            }
+        }, handle);
+        committer.commitPending();
+    }
+
+    public int getCountInMemoryList() {
+        return uiSnapshot.size();
+    }
+
+    public synchronized void loadNextListSlice(final int limit) {
+        if (!isDbSliceLoadingInProgress && lastSliceSize > 0) {
+            isDbSliceLoadingInProgress = true;
+
+
+            read(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // Logger.d(TAG, "Loading new slice: offset:" + currentDbOffset + ", limit:" + limit);
+                        final long start = Platform.get().uptimeMillis();
+
+                        if (materializedCache != null) {
+                            loadRawListSlice(limit, start);
+                        } else {
+                            loadListSlice(limit, start);
+                        }
+
+                    } catch (Exception e) {
+                        // Logger.e(TAG, "Error loading DB slice", e);
+                        e.printStackTrace();
+                    }
+                    isDbSliceLoadingInProgress = false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Load slice of deserialized values, should be called in read actor
+     *
+     * @return loaded values or null if nothing was loaded or list was cleared while loading
+     */
+    private ArrayList<V> loadListSlice(int limit, long start) {
+        final int generation;
+        final boolean byCursor;
+        final long afterSortKey, afterId;
+        final int offset;
+        synchronized (dbCursorLock) {
+            generation = dbCursorGeneration;
+            byCursor = hasDbCursor && storage.isKeysetSupported();
+            afterSortKey = lastDbSortKey;
+            afterId = lastDbId;
+            offset = currentDbOffset;
+        }
+
+        final ArrayList<V> list;
+        if (byCursor) {
+            list = storage.loadListSlice(limit, afterSortKey, afterId);
+        } else {
+            list = storageAdapter.loadListSlice(limit, offset);
+        }
+
+        if (list == null) {
+            return null;
+        }
+        averageSliceLoadTime = (averageSliceLoadTime + Platform.get().uptimeMillis() - start + FRAME_DELAY) / 2;
+
+        synchronized (dbCursorLock) {
+            if (generation != dbCursorGeneration) {
+                // Slice was loaded before clearing
+                return null;
+            }
+            lastSliceSize = list.size();
+            currentDbOffset += lastSliceSize;
+            if (lastSliceSize > 0) {
+                final V last = list.get(lastSliceSize - 1);
+                lastDbSortKey = dataAdapter.getSortKey(last);
+                lastDbId = dataAdapter.getId(last);
+                hasDbCursor = true;
+                if (lastSliceSize > 1) {
+                    final long firstSortKey = dataAdapter.getSortKey(list.get(0));
+                    if (firstSortKey != lastDbSortKey) {
+                        isSliceGrowingAtStart = firstSortKey > lastDbSortKey;
+                    }
+                }
+            }
+
+            modifyInMemoryList(new InMemoryListModification<V>() {
+                @Override
+                public void modify(InMemoryList<V> targetList) {
+                    targetList.addOrReplaceAll(list);
+                }
+            }, list.size());
+
+            for (V val : list) {
+                inMemoryMap.put(dataAdapter.getId(val), val);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Load slice of serialized values in lazy deserialization mode, should be called in read actor
+     *
+     * @return loaded items or null if nothing was loaded or list was cleared while loading
+     */
+    private ArrayList<RawItem> loadRawListSlice(int limit, long start) {
+        final int generation;
+        final boolean byCursor;
+        final long afterSortKey, afterId;
+        final int offset;
+        synchronized (dbCursorLock) {
+            generation = dbCursorGeneration;
+            byCursor = hasDbCursor && storage.isKeysetSupported();
+            afterSortKey = lastDbSortKey;
+            afterId = lastDbId;
+            offset = currentDbOffset;
+        }
+
+        final ArrayList<RawItem> list;
+        if (byCursor) {
+            list = storage.loadRawListSlice(limit, afterSortKey, afterId);
+        } else {
+            list = storage.loadRawListSlice(limit, offset);
+        }
+
+        if (list == null) {
+            return null;
+        }
+        averageSliceLoadTime = (averageSliceLoadTime + Platform.get().uptimeMillis() - start + FRAME_DELAY) / 2;
+
+        synchronized (dbCursorLock) {
+            if (generation != dbCursorGeneration) {
+                // Slice was loaded before clearing
+                return null;
+            }
+            lastSliceSize = list.size();
+            currentDbOffset += lastSliceSize;
+            if (lastSliceSize > 0) {
+                final RawItem last = list.get(lastSliceSize - 1);
+                lastDbSortKey = last.getSortKey();
+                lastDbId = last.getId();
+                hasDbCursor = true;
+                if (lastSliceSize > 1) {
+                    final long firstSortKey = list.get(0).getSortKey();
+                    if (firstSortKey != lastDbSortKey) {
+                        isSliceGrowingAtStart = firstSortKey > lastDbSortKey;
+                    }
+                }
+            }
+
+            modifyInMemoryList(new InMemoryListModification<V>() {
+                @Override
+                public void modify(InMemoryList<V> targetList) {
+                    targetList.addOrReplaceAll(list);
+                }
+            }, list.size());
+
+            for (RawItem raw : list) {
+                // Already deserialized values are up to date
+                if (!inMemoryMap.containsKey(raw.getId())) {
+                    inMemoryRawMap.put(raw.getId(), raw);
+                }
+            }
+        }
+        return list;
+    }
 
-                            for (V val : list) {
-                                inMemoryMap.put(dataAdapter.getId(val), val);
+    public synchronized void loadAll() {
+        if (!isDbSliceLoadingInProgress && lastSliceSize > 0) {
+            isDbSliceLoadingInProgress = true;
+
+            read(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final int generation;
+                        synchronized (dbCursorLock) {
+                            generation = dbCursorGeneration;
+                        }
+                        final ArrayList<V> list = storageAdapter.loadAll();
+
+                        synchronized (dbCursorLock) {
+                            // List loaded before clearing is dropped
+                            if (list != null && generation == dbCursorGeneration) {
+                                lastSliceSize = list.size();
+                                currentDbOffset += lastSliceSize;
+                                // loadAll is not ordered, further slices fall back to offset
+                                hasDbCursor = false;
+
+                                modifyInMemoryList(new InMemoryListModification<V>() {
+                                    @Override
+                                    public void modify(InMemoryList<V> targetList) {
+                                        targetList.clear();
+                                        targetList.addOrReplaceAll(list);
+                                    }
+                                }, list.size());
+
+                                for (V val : list) {
+                                    inMemoryMap.put(dataAdapter.getId(val), val);
+                                }
                             }
                         }
 
@@ -360,6 +963,59 @@ public class ListEngine<V> {
         }
     }
 
+    /**
+     * Load rest of list by chunks: every chunk is merged to in-memory list and published to ui as soon
+     * as it is loaded, so first items are visible before whole list is read. Only one chunk is kept
+     * outside of in-memory list at any time, with memory window in-memory list is bounded too.
+     *
+     * @param chunkSize number of items in chunk
+     */
+    public synchronized void loadAllStreaming(final int chunkSize) {
+        if (!isDbSliceLoadingInProgress && lastSliceSize > 0) {
+            isDbSliceLoadingInProgress = true;
+
+            read(new Runnable() {
+                @Override
+                public void run() {
+                    loadStreamingChunk(chunkSize);
+                }
+            });
+        }
+    }
+
+    /**
+     * Load next chunk of loadAllStreaming and schedule following one, called only in readActor
+     */
+    private void loadStreamingChunk(final int chunkSize) {
+        final ArrayList<?> chunk;
+        try {
+            final long start = Platform.get().uptimeMillis();
+
+            if (materializedCache != null) {
+                chunk = loadRawListSlice(chunkSize, start);
+            } else {
+                chunk = loadListSlice(chunkSize, start);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            isDbSliceLoadingInProgress = false;
+            return;
+        }
+
+        // Loading stops at the end of list or if list was cleared
+        if (chunk != null && chunk.size() >= chunkSize) {
+            // Next chunk is loaded with separate message, so writes are not blocked till the end of loading
+            read(new Runnable() {
+                @Override
+                public void run() {
+                    loadStreamingChunk(chunkSize);
+                }
+            });
+        } else {
+            isDbSliceLoadingInProgress = false;
+        }
+    }
+
     /**
      * Try to find value in memory by key
      *
@@ -368,100 +1024,392 @@ public class ListEngine<V> {
      */
     public synchronized V getValueFromMemory(long key) {
         V value = inMemoryMap.get(key);
+        if (value == null && materializedCache != null) {
+            value = materialize(inMemoryRawMap.get(key));
+        }
         return value;
     }
 
+    /**
+     * Enable lazy deserialization: slices are kept in memory as serialized RawItems and are deserialized
+     * only when they are requested with getValueFromMemoryList or getValueFromMemory.
+     * Deserialized values are kept in LRU cache.
+     * Should be called before loading of slices.
+     * Ignored if storage doesn't implement {@link RawStorageAdapter}, values are deserialized on load then.
+     *
+     * @param cacheSize number of deserialized values to cache
+     */
+    public synchronized void setLazyDeserialization(int cacheSize) {
+        if (!storage.isRawSupported()) {
+            return;
+        }
+        this.materializedCache = Platform.get().createCache(cacheSize);
+    }
+
+    /**
+     * Deserialize RawItem if needed
+     *
+     * @param value V, RawItem or null
+     * @return value
+     */
+    @SuppressWarnings("unchecked")
+    V materialize(Object value) {
+        if (value instanceof RawItem) {
+            final RawItem raw = (RawItem) value;
+            final Cache<RawItem, V> cache = materializedCache;
+            V res = cache != null ? cache.get(raw) : null;
+            if (res == null) {
+                res = dataAdapter.deserialize(raw.getBytes());
+                if (res != null && cache != null) {
+                    cache.put(raw, res);
+                }
+            }
+            return res;
+        }
+        return (V) value;
+    }
+
     public synchronized void getValueFromDb(final long key, final ValueCallback<V> valueCallback) {
-        dbActor.send(new Runnable() {
+        read(new Runnable() {
             @Override
             public void run() {
                 V v = (V) storageAdapter.getById(key);
-                inMemoryMap.put(key, v);
+                if (v != null) {
+                    inMemoryMap.put(key, v);
+                }
                 valueCallback.value(v);
             }
         });
     }
 
-    public synchronized V getValueFromMemoryList(int index) {
-        if (index >= 0 && index < getActiveList().size()) {
-            return getActiveList().get(index);
-        } else {
-            return null;
+    /**
+     * Find in-memory values with sort keys in [fromSortKey, toSortKey] with binary search,
+     * values evicted from memory are skipped
+     *
+     * @return values ordered by sort key
+     */
+    public ArrayList<V> getRange(long fromSortKey, long toSortKey) {
+        final ListSnapshot<V> snapshot = uiSnapshot;
+        final int from = snapshot.lowerBound(fromSortKey);
+        final int to = snapshot.upperBound(toSortKey);
+        final ArrayList<V> res = new ArrayList<V>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            final V value = snapshot.get(i);
+            if (value != null) {
+                res.add(value);
+            }
         }
+        return res;
     }
 
-    public synchronized void clear() {
-
-        clearInMemory();
-
-        dbActor.send(new Runnable() {
+    /**
+     * Load values with sort keys in [fromSortKey, toSortKey] from storage, in-memory list is not changed.
+     * Callback is called in read actor (db_read dispatcher) after pending writes are committed,
+     * with values ordered by sort key.
+     */
+    public void loadRange(final long fromSortKey, final long toSortKey, final ValuesCallback<V> callback) {
+        read(new Runnable() {
             @Override
             public void run() {
-                final long dbStart = SystemClock.uptimeMillis();
-                storageAdapter.deleteAll();
-                currentDbOffset = 0;
-                // showDebugToast("DB: " + (SystemClock.uptimeMillis() - dbStart) + "ms");
+                ArrayList<V> list = null;
+                try {
+                    list = storage.loadListRange(fromSortKey, toSortKey);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                callback.values(list != null ? list : new ArrayList<V>());
             }
-        }, 0);
+        });
     }
 
-    public synchronized void clearMemoryInternal() {
-        final int changeSize = inMemorySortedList1.size();
-        inMemorySortedList1.clear();
-        inMemorySortedList2.clear();
-        inMemoryMap.clear();
-        lastSliceSize = 1;
-        currentDbOffset = 0;
-        NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_UPDATE, listEngineId, new Integer[]{changeSize});
+    public V getValueFromMemoryList(int index) {
+        final ListSnapshot<V> snapshot = uiSnapshot;
+        if (index >= 0 && index < snapshot.size()) {
+            final V value = snapshot.get(index);
+            if (memoryWindow > 0) {
+                onMemoryWindowAccess(snapshot, index, value);
+            }
+            if (prefetchPageSize > 0) {
+                onPrefetchAccess(snapshot.size(), index);
+            }
+            return value;
+        } else {
+            return null;
+        }
     }
 
-    private synchronized void clearInMemory() {
-        if (Utils.isUIThread()) {
-            clearMemoryInternal();
-        } else {
-            uiActor.send(new Runnable() {
+    /**
+     * Enable bounded memory mode: only about windowSize values around the position last requested
+     * with getValueFromMemoryList are kept in memory. Other values are evicted, but their items keep
+     * their positions, so list size and positions visible to ui don't change. Evicted values are
+     * reloaded from storage when ui reaches them: till then getValueFromMemoryList returns null
+     * and LIST_ENGINE_UI_LIST_CHANGES with changes of reloaded positions is fired after reload.
+     * Views don't keep evicted values: evicted items are removed from views till reload.
+     *
+     * @param windowSize number of values to keep, 0 to keep all loaded values
+     */
+    public void setMemoryWindow(int windowSize) {
+        this.memoryWindow = Math.max(windowSize, 0);
+        trimMemoryWindow();
+    }
+
+    /**
+     * Enable automatic prefetch: ListEngine watches positions requested with getValueFromMemoryList
+     * and loads next slices before ui reaches the end of loaded items.
+     * Page size grows with scroll speed up to 8 * pageSize.
+     * Should be used only when getValueFromMemoryList is called from ui thread.
+     *
+     * @param pageSize minimal page size, 0 to disable prefetch
+     */
+    public void setPrefetch(int pageSize) {
+        this.prefetchPageSize = Math.max(pageSize, 0);
+    }
+
+    private void onPrefetchAccess(int size, int index) {
+        final int pageSize = prefetchPageSize;
+        // Position counted from loaded end, so it is not shifted by slices inserted at start
+        final int position = isSliceGrowingAtStart ? size - 1 - index : index;
+        final long now = Platform.get().uptimeMillis();
+        if (lastAccessPosition >= 0 && now - lastAccessTime > 500) {
+            // Scrolling was stopped
+            accessSpeed = 0;
+        } else if (lastAccessPosition >= 0 && now > lastAccessTime) {
+            final float speed = (float) (position - lastAccessPosition) / (now - lastAccessTime);
+            accessSpeed = accessSpeed * 0.7f + speed * 0.3f;
+        }
+        lastAccessPosition = position;
+        lastAccessTime = now;
+
+        if (isDbSliceLoadingInProgress || lastSliceSize <= 0) {
+            return;
+        }
+
+        // Items that will be passed while next slice is loading, with double reserve
+        final int expected = (int) (Math.max(accessSpeed, 0) * averageSliceLoadTime * 2);
+        final int remaining = size - 1 - position;
+        if (remaining < Math.max(pageSize, expected)) {
+            loadNextListSlice(Math.min(Math.max(pageSize, expected * 2), pageSize * 8));
+        }
+    }
+
+    private void onMemoryWindowAccess(final ListSnapshot<V> snapshot, final int index, final V value) {
+        final int window = memoryWindow;
+        final WindowCenter center = memoryWindowCenter;
+        final int centerIndex = center == null ? 0 : snapshot.rank(center.sortKey, center.id);
+        if (center == null || Math.abs(index - centerIndex) > window / 4) {
+            memoryWindowCenter = new WindowCenter(snapshot.getSortKey(index), snapshot.getId(index));
+            trimMemoryWindow();
+        }
+
+        if (value == null && isWindowReloadInProgress.compareAndSet(false, true)) {
+            final int from = Math.max(0, index - window / 4);
+            final int to = Math.min(snapshot.size(), index + window / 4 + 1);
+            final long fromSortKey = snapshot.getSortKey(from);
+            final long toSortKey = snapshot.getSortKey(to - 1);
+            final int generation;
+            synchronized (dbCursorLock) {
+                generation = dbCursorGeneration;
+            }
+            read(new Runnable() {
                 @Override
                 public void run() {
-                    clearMemoryInternal();
+                    try {
+                        final ArrayList<V> list = storage.loadListRange(fromSortKey, toSortKey);
+                        synchronized (dbCursorLock) {
+                            if (generation != dbCursorGeneration) {
+                                // Values loaded before clearing are dropped
+                                isWindowReloadInProgress.set(false);
+                                return;
+                            }
+                            modifyInMemoryList(new InMemoryListModification<V>() {
+                                @Override
+                                public void modify(InMemoryList<V> targetList) {
+                                    if (list != null) {
+                                        targetList.restore(list);
+                                        for (V val : list) {
+                                            if (!inMemoryMap.containsKey(dataAdapter.getId(val))) {
+                                                inMemoryMap.put(dataAdapter.getId(val), val);
+                                            }
+                                        }
+                                    }
+                                    isWindowReloadInProgress.set(false);
+                                }
+                            }, 0);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        isWindowReloadInProgress.set(false);
+                    }
                 }
             });
         }
     }
 
-    private void switchActiveList() {
-        synchronized (inMemoryListSync) {
-            if (inMemorySortedList == inMemorySortedList1) {
-                inMemorySortedList = inMemorySortedList2;
-            } else {
-                inMemorySortedList = inMemorySortedList1;
-            }
+    private void trimMemoryWindow() {
+        if (isTrimScheduled.compareAndSet(false, true)) {
+            listActor.send(new TrimMemoryWindow());
         }
     }
 
-    private SortedArrayList<V> getInactiveList() {
-        synchronized (inMemoryListSync) {
-            if (inMemorySortedList == inMemorySortedList1) {
-                return inMemorySortedList2;
+    /**
+     * Evict values outside of moved memory window and publish list without them, called only in listActor
+     */
+    void doTrimMemoryWindow() {
+        isTrimScheduled.set(false);
+        if (isFlushScheduled.get()) {
+            // Window is checked after every applied batch
+            return;
+        }
+        if (evictOutsideMemoryWindow()) {
+            publish(0);
+        }
+    }
+
+    /**
+     * Evict values outside of memory window, called only in listActor
+     *
+     * @return true if some values were evicted
+     */
+    @SuppressWarnings("unchecked")
+    private boolean evictOutsideMemoryWindow() {
+        final int window = memoryWindow;
+        if (window <= 0 || inMemoryList.getList().valuesCount() <= window + window / 2) {
+            return false;
+        }
+        final PersistentSortedList<Object> list = inMemoryList.getList();
+        final WindowCenter center = memoryWindowCenter;
+        final int centerIndex = center == null ? 0 : list.rank(center.sortKey, center.id);
+        final int size = list.size();
+        final int from = Math.max(0, Math.min(centerIndex - window / 2, size - window));
+        final int to = Math.min(size, from + window);
+        final ArrayList<Object> evicted = new ArrayList<Object>();
+        inMemoryList.evictOutside(from, to, evicted);
+        for (Object val : evicted) {
+            if (val instanceof RawItem) {
+                inMemoryRawMap.remove(((RawItem) val).getId(), (RawItem) val);
             } else {
-                return inMemorySortedList1;
+                inMemoryMap.remove(dataAdapter.getId((V) val), (V) val);
             }
         }
+        return !evicted.isEmpty();
+    }
+
+    /**
+     * Immutable version of in-memory list that was published with last LIST_ENGINE_UI_LIST_UPDATE event.
+     * Snapshot can be read from any thread without locking.
+     *
+     * @return current ui snapshot
+     */
+    public ListSnapshot<V> getSnapshot() {
+        return uiSnapshot;
+    }
+
+    /**
+     * @return handle resolved when clearing is committed to storage
+     */
+    public synchronized CommitHandle clear() {
+
+        clearInMemory();
+        final PendingCommit handle;
+        synchronized (pendingWrites) {
+            // Buffered writes are dropped, their handle is resolved with clearing
+            pendingWrites.clear();
+            handle = pendingWritesHandle;
+            pendingWritesHandle = new PendingCommit();
+        }
+
+        return committer.submit(new Runnable() {
+            @Override
+            public void run() {
+                storageAdapter.deleteAll();
+            }
+        }, handle);
     }
 
-    private SortedArrayList<V> getActiveList() {
-        synchronized (inMemoryListSync) {
-            return inMemorySortedList;
+    public synchronized void clearMemoryInternal() {
+        synchronized (dbCursorLock) {
+            // Slices that are loading now are dropped, next slice starts from the beginning
+            dbCursorGeneration++;
+            final int changeSize = uiSnapshot.size();
+            inMemoryMap.clear();
+            inMemoryRawMap.clear();
+            lastSliceSize = 1;
+            currentDbOffset = 0;
+            hasDbCursor = false;
+            modifyInMemoryList(new InMemoryListModification<V>() {
+                @Override
+                public void modify(InMemoryList<V> list) {
+                    list.clear();
+                }
+            }, changeSize);
         }
     }
 
-    private synchronized void modifyInMemoryList(InMemoryListModification<V> modification, int changeSize) {
-        listActor.send(new ChangeList<V>(modification, changeSize));
+    private synchronized void clearInMemory() {
+        clearMemoryInternal();
     }
 
-    private final Object inMemoryListSync = new Object();
+    private void modifyInMemoryList(InMemoryListModification<V> modification, int changeSize) {
+        pendingChanges.add(new ChangeList<V>(modification, changeSize));
+        if (isFlushScheduled.compareAndSet(false, true)) {
+            listActor.send(new FlushChanges());
+        }
+    }
+
+    private void modifyInMemoryList(CountedModification<V> modification) {
+        modifyInMemoryList(modification, 0);
+    }
 
     private interface InMemoryListModification<V> {
-        void modify(final SortedArrayList<V> list);
+        void modify(final InMemoryList<V> list);
+    }
+
+    /**
+     * Modification whose change size is known only after it is applied in listActor
+     */
+    private static abstract class CountedModification<V> implements InMemoryListModification<V> {
+        private int changeSize;
+
+        @Override
+        public void modify(InMemoryList<V> list) {
+            changeSize = apply(list);
+        }
+
+        /**
+         * @return number of changed items, negative for removed items
+         */
+        protected abstract int apply(InMemoryList<V> list);
+    }
+
+    /**
+     * Create filtered view of this list. View is filled with already loaded values and then
+     * updated incrementally with every modification of list.
+     *
+     * @param filter predicate of view
+     * @return view with its own notification id
+     */
+    public ListView<V> createView(ListFilter<V> filter) {
+        final ListView<V> view = new ListView<V>(this, NEXT_ID.getAndIncrement(), filter,
+                new InMemoryList<V>(this, dataAdapter, filter));
+        modifyInMemoryList(new InMemoryListModification<V>() {
+            @Override
+            public void modify(InMemoryList<V> list) {
+                list.addView(view);
+            }
+        }, 0);
+        return view;
+    }
+
+    /**
+     * Stop updating of view
+     */
+    public void removeView(final ListView<V> view) {
+        modifyInMemoryList(new InMemoryListModification<V>() {
+            @Override
+            public void modify(InMemoryList<V> list) {
+                list.removeView(view);
+            }
+        }, 0);
     }
 
     public ActorSelection db() {
@@ -470,7 +1418,16 @@ public class ListEngine<V> {
             public RunnableActor create() {
                 return new RunnableActor();
             }
-        }).changeDispatcher("db"), "list_db_" + listEngineId);
+        }).changeDispatcher(Engines.DB_WRITE_DISPATCHER), "list_db_" + listEngineId);
+    }
+
+    public ActorSelection dbRead() {
+        return new ActorSelection(Props.create(RunnableActor.class, new ActorCreator<RunnableActor>() {
+            @Override
+            public RunnableActor create() {
+                return new RunnableActor();
+            }
+        }).changeDispatcher(Engines.DB_READ_DISPATCHER), "list_db_read_" + listEngineId);
     }
 
     public ActorSelection memoryList() {
@@ -482,55 +1439,98 @@ public class ListEngine<V> {
         }), "list_" + listEngineId);
     }
 
-    void doChangeList(final ChangeList<V> changeList) {
-        synchronized (inMemoryListSync) {
-            final InMemoryListModification<V> modification = changeList.getModification();
-            final SortedArrayList<V> beginInactiveList = getInactiveList();
+    public ActorSelection ui() {
+        return new ActorSelection(Props.create(RunnableActor.class, new ActorCreator<RunnableActor>() {
+            @Override
+            public RunnableActor create() {
+                return new RunnableActor();
+            }
+        }).changeDispatcher("ui"), "list_ui_" + listEngineId);
+    }
 
-            modification.modify(beginInactiveList);
+    /**
+     * Apply all queued modifications to in-memory list exactly once and publish new version to ui,
+     * not more often than once per frame.
+     * List actor never waits for ui thread: ui just switches to new immutable snapshot.
+     */
+    void doFlushChanges() {
+        final long delay = lastPublishTime + FRAME_DELAY - Platform.get().uptimeMillis();
+        if (delay > 0) {
+            // Keep collecting modifications till the next frame
+            listActor.send(new FlushChanges(), delay);
+            return;
+        }
+        isFlushScheduled.set(false);
+
+        final long applyStart = EngineMetrics.startTime();
+        int changeSize = 0;
+        int changesCount = 0;
+        ChangeList<V> changeList;
+        while ((changeList = pendingChanges.poll()) != null) {
+            changeList.getModification().modify(inMemoryList);
+            changeSize += changeList.getSize();
+            changesCount++;
+        }
+        if (changesCount == 0) {
+            return;
+        }
+        evictOutsideMemoryWindow();
+        applyTime.recordSince(applyStart);
 
-            uiActor.send(new Runnable() {
-                @Override
-                public void run() {
-                    synchronized (inMemoryListSync) {
-                        switchActiveList();
-                        // Logger.d(TAG, "inMemorySortedList1.size():" + inMemorySortedList1.size() + ", inMemorySortedList2.size():" + inMemorySortedList2.size());
-                        NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_UPDATE, listEngineId, new Integer[]{changeList.getSize()});
-                        inMemoryListSync.notifyAll();
-                    }
-                }
-            }, 5);
+        publish(changeSize);
+    }
 
-            try {
-                inMemoryListSync.wait(5000);
-            } catch (InterruptedException e) {
-                // Logger.d(e);
+    /**
+     * Publish current version of in-memory list to ui and views, called only in listActor
+     *
+     * @param changeSize number of changed items
+     */
+    private void publish(int changeSize) {
+        lastPublishTime = Platform.get().uptimeMillis();
+        final ListChangeSet changes = inMemoryList.takeChanges(++lastVersion);
+        synchronized (pendingUiSync) {
+            publishedSnapshot = new ListSnapshot<V>(lastVersion, inMemoryList.getList(), this);
+            if (pendingUiChanges == null) {
+                pendingUiChanges = changes;
+                pendingUiSince = EngineMetrics.startTime();
+            } else {
+                pendingUiChanges.append(changes);
             }
+            pendingUiChangeSize += changeSize;
+        }
 
-            final SortedArrayList<V> endInactiveList = getInactiveList();
-            if (beginInactiveList != endInactiveList) {
-                modification.modify(endInactiveList);
-            } else {
-                //SOMETHING WENT WRONG!
-                // Logger.e(TAG, "Error in memories list sync");
-                // Logger.e(TAG, "inMemorySortedList1.size():" + inMemorySortedList1.size() + ", inMemorySortedList2.size():" + inMemorySortedList2.size());
-                uiActor.send(new Runnable() {
-                    @Override
-                    public void run() {
-                        synchronized (inMemoryListSync) {
-                            modification.modify(getActiveList());
-                            NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_UPDATE, listEngineId, new Integer[]{changeList.getSize()});
-                            inMemoryListSync.notifyAll();
+        if (isUiUpdateScheduled.compareAndSet(false, true)) {
+            uiActor.send(new Runnable() {
+                @Override
+                public void run() {
+                    isUiUpdateScheduled.set(false);
+                    final ListChangeSet uiChanges;
+                    final int uiChangeSize;
+                    synchronized (pendingUiSync) {
+                        if (pendingUiChanges == null) {
+                            return;
                         }
+                        uiSnapshot = publishedSnapshot;
+                        uiChanges = pendingUiChanges;
+                        uiChangeSize = pendingUiChangeSize;
+                        pendingUiChanges = null;
+                        pendingUiChangeSize = 0;
+                        uiSwapWait.recordSince(pendingUiSince);
                     }
-                }, 5);
-                try {
-                    inMemoryListSync.wait(5000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                    // Logger.d(e);
+                    if (uiChanges.isEmpty() && uiChangeSize == 0) {
+                        // Only evictions: nothing visible was changed
+                        return;
+                    }
+                    NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_UPDATE, listEngineId,
+                            new Integer[]{uiChangeSize});
+                    NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_CHANGES, listEngineId,
+                            new Object[]{uiChanges});
                 }
-            }
+            });
+        }
+
+        for (ListView<V> view : inMemoryList.getViews()) {
+            view.publish(lastVersion);
         }
     }
 
@@ -544,10 +1544,393 @@ public class ListEngine<V> {
 
         @Override
         public void onReceive(Object message) {
-            if (message instanceof ChangeList) {
-                engine.doChangeList((ChangeList) message);
+            if (message instanceof FlushChanges) {
+                engine.doFlushChanges();
+            } else if (message instanceof TrimMemoryWindow) {
+                engine.doTrimMemoryWindow();
+            }
+        }
+    }
+
+    /**
+     * Persistent sorted list with id index, so items can be found by id without iterating whole list.
+     * Every modification replaces current immutable list with new version.
+     * Values are either V, RawItem (not deserialized yet) or null (evicted from memory).
+     * Every modification is also applied to filtered views of list. Views keep the same objects
+     * as list, values for filters are deserialized once per modification through engine cache.
+     */
+    protected static class InMemoryList<V> {
+
+        private final ListEngine<V> engine;
+
+        private final DataAdapter<V> dataAdapter;
+
+        /**
+         * Filter of values, null for ListEngine list
+         */
+        private final ListFilter<V> filter;
+
+        private final ArrayList<ListView<V>> views = new ArrayList<ListView<V>>();
+
+        private final Comparator<Object> comparator;
+
+        private final HashMap<Long, Long> sortKeys = new HashMap<Long, Long>();
+
+        private PersistentSortedList<Object> list = PersistentSortedList.empty();
+
+        private ListChangeSet changes = new ListChangeSet(0);
+
+        private InMemoryList(final ListEngine<V> engine, final DataAdapter<V> dataAdapter) {
+            this(engine, dataAdapter, null);
+        }
+
+        private InMemoryList(final ListEngine<V> engine, final DataAdapter<V> dataAdapter,
+                             final ListFilter<V> filter) {
+            this.engine = engine;
+            this.dataAdapter = dataAdapter;
+            this.filter = filter;
+            this.comparator = new Comparator<Object>() {
+                @Override
+                public int compare(Object lhs, Object rhs) {
+                    long lKey = sortKeyOf(lhs);
+                    long rKey = sortKeyOf(rhs);
+                    if (lKey == rKey) {
+                        lKey = idOf(lhs);
+                        rKey = idOf(rhs);
+                    }
+
+                    if (lKey > rKey) {
+                        return 1;
+                    } else if (lKey < rKey) {
+                        return -1;
+                    } else {
+                        return 0;
+                    }
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private long idOf(Object value) {
+            if (value instanceof RawItem) {
+                return ((RawItem) value).getId();
+            }
+            return dataAdapter.getId((V) value);
+        }
+
+        @SuppressWarnings("unchecked")
+        private long sortKeyOf(Object value) {
+            if (value instanceof RawItem) {
+                return ((RawItem) value).getSortKey();
+            }
+            return dataAdapter.getSortKey((V) value);
+        }
+
+        /**
+         * @return current version of list
+         */
+        public PersistentSortedList<Object> getList() {
+            return list;
+        }
+
+        /**
+         * Changes recorded since previous call
+         *
+         * @param version version of current list
+         * @return recorded changes
+         */
+        public ListChangeSet takeChanges(long version) {
+            final ListChangeSet res = changes;
+            res.setToVersion(version);
+            changes = new ListChangeSet(version);
+            return res;
+        }
+
+        /**
+         * Insert value to its sorted position replacing value with the same id
+         */
+        public void addOrReplace(Object value) {
+            replace(value);
+
+            if (!views.isEmpty()) {
+                final V val = engine.materialize(value);
+                for (ListView<V> view : views) {
+                    view.getList().offer(value, val);
+                }
+            }
+        }
+
+        private void replace(Object value) {
+            final long id = idOf(value);
+            final long sortKey = sortKeyOf(value);
+            final Long oldSortKey = sortKeys.put(id, sortKey);
+            if (oldSortKey == null) {
+                list = list.put(sortKey, id, value);
+                changes.insert(list.indexOf(sortKey, id), 1);
+            } else if (oldSortKey == sortKey) {
+                list = list.put(sortKey, id, value);
+                changes.change(list.indexOf(sortKey, id), 1);
+            } else {
+                final int from = list.indexOf(oldSortKey, id);
+                list = list.remove(oldSortKey, id).put(sortKey, id, value);
+                final int to = list.indexOf(sortKey, id);
+                changes.move(from, to);
+                changes.change(to, 1);
+            }
+        }
+
+        /**
+         * Merge values to list replacing values with the same ids
+         */
+        public void addOrReplaceAll(Collection<?> values) {
+            // Only last value for each id is kept
+            final LinkedHashMap<Long, Object> batch = new LinkedHashMap<Long, Object>(values.size());
+            for (Object value : values) {
+                batch.put(idOf(value), value);
+            }
+            offerToViews(batch.values());
+            // Existing values are updated one by one to get exact moves
+            final ArrayList<Object> added = new ArrayList<Object>(batch.size());
+            for (Object value : batch.values()) {
+                if (sortKeys.containsKey(idOf(value))) {
+                    replace(value);
+                } else {
+                    added.add(value);
+                }
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+
+            // Already sorted or reversed slices are sorted in linear time
+            final Object[] sorted = added.toArray();
+            Arrays.sort(sorted, comparator);
+
+            final long[] keys = new long[sorted.length];
+            final long[] ids = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = sortKeyOf(sorted[i]);
+                ids[i] = idOf(sorted[i]);
+                sortKeys.put(ids[i], keys[i]);
+            }
+            list = list.putAll(keys, ids, sorted, sorted.length);
+
+            // Inserts in ascending order of final positions
+            for (int i = 0; i < sorted.length; i++) {
+                changes.insert(list.indexOf(keys[i], ids[i]), 1);
+            }
+        }
+
+        /**
+         * Remove value with specified id in O(log n): sort key of id is taken from id index,
+         * so item is removed from tree by its (sortKey, id) without scanning the list
+         *
+         * @return true if value was removed
+         */
+        public boolean removeById(long id) {
+            final Long sortKey = sortKeys.remove(id);
+            if (sortKey == null) {
+                return false;
+            }
+            changes.remove(list.indexOf(sortKey, id), 1);
+            list = list.remove(sortKey, id);
+
+            for (ListView<V> view : views) {
+                view.getList().removeById(id);
+            }
+            return true;
+        }
+
+        /**
+         * Put back values of evicted items, items that are not in list are ignored
+         */
+        public void restore(Collection<?> values) {
+            final ArrayList<Object> restored = new ArrayList<Object>();
+            for (Object value : values) {
+                final long id = idOf(value);
+                final Long sortKey = sortKeys.get(id);
+                if (sortKey == null || sortKey != sortKeyOf(value)) {
+                    continue;
+                }
+                final int index = list.indexOf(sortKey, id);
+                if (list.get(index) == null) {
+                    list = list.put(sortKey, id, value);
+                    changes.change(index, 1);
+                    restored.add(value);
+                }
+            }
+
+            if (!restored.isEmpty()) {
+                offerToViews(restored);
+            }
+        }
+
+        /**
+         * Evict values outside of [from, to) keeping items positions.
+         * Evicted items are removed from views, they are offered to views again when restored.
+         */
+        public void evictOutside(int from, int to, ArrayList<Object> evicted) {
+            final int start = evicted.size();
+            list = list.clearValues(0, from, evicted).clearValues(to, list.size(), evicted);
+
+            for (ListView<V> view : views) {
+                for (int i = start; i < evicted.size(); i++) {
+                    view.getList().removeById(idOf(evicted.get(i)));
+                }
+            }
+        }
+
+        public void clear() {
+            changes.remove(0, list.size());
+            list = PersistentSortedList.empty();
+            sortKeys.clear();
+
+            for (ListView<V> view : views) {
+                view.getList().clear();
             }
         }
+
+        public ArrayList<ListView<V>> getViews() {
+            return views;
+        }
+
+        /**
+         * Start updating of view and fill it with loaded values of list
+         */
+        public void addView(ListView<V> view) {
+            if (views.contains(view)) {
+                return;
+            }
+            views.add(view);
+            final ArrayList<Object> values = new ArrayList<Object>(list.valuesCount());
+            list.collectValues(values);
+            final ArrayList<V> materialized = new ArrayList<V>(values.size());
+            for (Object value : values) {
+                materialized.add(engine.materialize(value));
+            }
+            view.getList().offerAll(values, materialized);
+        }
+
+        public void removeView(ListView<V> view) {
+            views.remove(view);
+        }
+
+        /**
+         * Deserialize values once for all views and offer them to every view
+         */
+        private void offerToViews(Collection<?> values) {
+            if (views.isEmpty()) {
+                return;
+            }
+            final ArrayList<Object> items = new ArrayList<Object>(values);
+            final ArrayList<V> materialized = new ArrayList<V>(items.size());
+            for (Object value : items) {
+                materialized.add(engine.materialize(value));
+            }
+            for (ListView<V> view : views) {
+                view.getList().offerAll(items, materialized);
+            }
+        }
+
+        /**
+         * Add value to filtered list if it is accepted by filter or remove it otherwise
+         *
+         * @param value        object of ListEngine list, kept in view as is
+         * @param materialized deserialized value for filter
+         */
+        private void offer(Object value, V materialized) {
+            if (materialized != null && filter.accept(materialized)) {
+                addOrReplace(value);
+            } else {
+                removeById(idOf(value));
+            }
+        }
+
+        private void offerAll(ArrayList<Object> values, ArrayList<V> materialized) {
+            final ArrayList<Object> accepted = new ArrayList<Object>();
+            for (int i = 0; i < values.size(); i++) {
+                final V val = materialized.get(i);
+                if (val != null && filter.accept(val)) {
+                    accepted.add(values.get(i));
+                } else {
+                    removeById(idOf(values.get(i)));
+                }
+            }
+            addOrReplaceAll(accepted);
+        }
+    }
+
+    private static class FlushChanges {
+
+    }
+
+    private static class TrimMemoryWindow {
+
+    }
+
+    /**
+     * Item in the middle of memory window
+     */
+    private static class WindowCenter {
+        private final long sortKey;
+        private final long id;
+
+        private WindowCenter(long sortKey, long id) {
+            this.sortKey = sortKey;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Depth of work queued for one of engine actors: uncommitted and buffered writes for dbActor,
+     * modifications for listActor and changed items not delivered to uiActor.
+     * Engine is referenced weakly, so registry of metrics doesn't keep it in memory.
+     */
+    private static class QueueGauge implements Gauge {
+        private static final int DB = 0;
+        private static final int LIST = 1;
+        private static final int UI = 2;
+
+        private final WeakReference<ListEngine> engine;
+        private final int queue;
+
+        private QueueGauge(ListEngine engine, int queue) {
+            this.engine = new WeakReference<ListEngine>(engine);
+            this.queue = queue;
+        }
+
+        @Override
+        public long value() {
+            final ListEngine e = engine.get();
+            if (e == null) {
+                return 0;
+            }
+            switch (queue) {
+                case DB:
+                    synchronized (e.pendingWrites) {
+                        return e.committer.getUncommittedCount() + e.pendingWrites.size();
+                    }
+                case LIST:
+                    return e.pendingChanges.size();
+                default:
+                    synchronized (e.pendingUiSync) {
+                        return e.pendingUiChangeSize;
+                    }
+            }
+        }
+    }
+
+    private static class PendingWrite<V> {
+        private static final int TYPE_REPLACE = 0;
+        private static final int TYPE_DELETE = 1;
+
+        private final int type;
+        private final V value;
+
+        private PendingWrite(int type, V value) {
+            this.type = type;
+            this.value = value;
+        }
     }
 
     private static class ChangeList<V> {
@@ -563,7 +1946,13 @@ public class ListEngine<V> {
             return modification;
         }
 
+        /**
+         * @return change size, should be called after modification is applied
+         */
         public int getSize() {
+            if (modification instanceof CountedModification) {
+                return ((CountedModification<V>) modification).changeSize;
+            }
             return size;
         }
     }
@@ -0,0 +1,9 @@
+package com.droidkit.engine.list;
+
+/**
+ * Predicate of ListView, must be pure: result should depend only on value
+ */
+public interface ListFilter<V> {
+
+    boolean accept(V value);
+}
@@ -0,0 +1,69 @@
+package com.droidkit.engine.list;
+
+import com.droidkit.engine._internal.util.PersistentSortedList;
+
+/**
+ * Immutable version of ListEngine in-memory list.
+ * New snapshot shares all unchanged items with previous one, so publishing it is cheap.
+ */
+public class ListSnapshot<V> {
+
+    private final long version;
+
+    private final PersistentSortedList<Object> list;
+
+    private final ListEngine<V> engine;
+
+    ListSnapshot(long version, PersistentSortedList<Object> list, ListEngine<V> engine) {
+        this.version = version;
+        this.list = list;
+        this.engine = engine;
+    }
+
+    /**
+     * @return number of modification that produced this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return list.size();
+    }
+
+    /**
+     * @return value at position or null if value was evicted from memory
+     */
+    public V get(int index) {
+        return engine.materialize(list.get(index));
+    }
+
+    public long getSortKey(int index) {
+        return list.getSortKey(index);
+    }
+
+    public long getId(int index) {
+        return list.getId(index);
+    }
+
+    /**
+     * @return number of items ordered before (sortKey, id), position of item if it is in snapshot
+     */
+    int rank(long sortKey, long id) {
+        return list.rank(sortKey, id);
+    }
+
+    /**
+     * @return position of the first item with sort key not less than given one, in [0, size()]
+     */
+    public int lowerBound(long sortKey) {
+        return list.lowerBound(sortKey);
+    }
+
+    /**
+     * @return position of the first item with sort key greater than given one, in [0, size()]
+     */
+    public int upperBound(long sortKey) {
+        return list.upperBound(sortKey);
+    }
+}
@@ -0,0 +1,135 @@
+package com.droidkit.engine.list;
+
+import com.droidkit.engine.event.Events;
+import com.droidkit.engine.event.NotificationCenter;
+
+/**
+ * Filtered projection of ListEngine list.
+ * View has its own sorted index with items of ListEngine accepted by filter. Index is updated
+ * in list actor together with ListEngine list on every modification, so it is never rebuilt.
+ * View keeps the same objects as ListEngine list, including not deserialized RawItems in lazy mode,
+ * so data is kept in memory once and nothing is stored twice in database.
+ * <p>
+ * View publishes its versions with LIST_ENGINE_UI_LIST_UPDATE and LIST_ENGINE_UI_LIST_CHANGES events
+ * with getViewId() as id.
+ * Items of ListEngine that are evicted from memory or not loaded yet are not visible in view:
+ * evicted items are removed from view and are added back when ListEngine reloads them.
+ */
+public class ListView<V> {
+
+    private final ListEngine<V> engine;
+
+    private final int viewId;
+
+    private final ListFilter<V> filter;
+
+    /**
+     * Sorted index of view, modified only in listActor
+     */
+    private final ListEngine.InMemoryList<V> list;
+
+    /**
+     * Version of view published to ui, replaced only in uiActor
+     */
+    private volatile ListSnapshot<V> uiSnapshot;
+
+    private ListSnapshot<V> publishedSnapshot;
+
+    private ListChangeSet pendingUiChanges = null;
+
+    private boolean isUiUpdateScheduled = false;
+
+    private final Object pendingUiSync = new Object();
+
+    ListView(ListEngine<V> engine, int viewId, ListFilter<V> filter, ListEngine.InMemoryList<V> list) {
+        this.engine = engine;
+        this.viewId = viewId;
+        this.filter = filter;
+        this.list = list;
+        this.uiSnapshot = new ListSnapshot<V>(0, list.getList(), engine);
+        this.publishedSnapshot = uiSnapshot;
+    }
+
+    /**
+     * @return Id unique for current view, must be used in NotificationListeners
+     */
+    public int getViewId() {
+        return viewId;
+    }
+
+    public ListFilter<V> getFilter() {
+        return filter;
+    }
+
+    public ListEngine<V> getEngine() {
+        return engine;
+    }
+
+    /**
+     * Immutable version of view that was published with last LIST_ENGINE_UI_LIST_UPDATE event
+     */
+    public ListSnapshot<V> getSnapshot() {
+        return uiSnapshot;
+    }
+
+    public int getCount() {
+        return uiSnapshot.size();
+    }
+
+    public V getValue(int index) {
+        final ListSnapshot<V> snapshot = uiSnapshot;
+        if (index >= 0 && index < snapshot.size()) {
+            return snapshot.get(index);
+        } else {
+            return null;
+        }
+    }
+
+    ListEngine.InMemoryList<V> getList() {
+        return list;
+    }
+
+    /**
+     * Publish changes of view made by last flush, called only in listActor
+     */
+    void publish(long version) {
+        final ListChangeSet changes = list.takeChanges(version);
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        synchronized (pendingUiSync) {
+            publishedSnapshot = new ListSnapshot<V>(version, list.getList(), engine);
+            if (pendingUiChanges == null) {
+                pendingUiChanges = changes;
+            } else {
+                pendingUiChanges.append(changes);
+            }
+            if (isUiUpdateScheduled) {
+                return;
+            }
+            isUiUpdateScheduled = true;
+        }
+
+        engine.uiActor.send(new Runnable() {
+            @Override
+            public void run() {
+                final ListChangeSet uiChanges;
+                synchronized (pendingUiSync) {
+                    isUiUpdateScheduled = false;
+                    uiSnapshot = publishedSnapshot;
+                    uiChanges = pendingUiChanges;
+                    pendingUiChanges = null;
+                }
+                int changeSize = 0;
+                for (ListChange change : uiChanges.getChanges()) {
+                    changeSize += change.getCount();
+                }
+                NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_UPDATE, viewId,
+                        new Integer[]{changeSize});
+                NotificationCenter.getInstance().fireEvent(Events.LIST_ENGINE_UI_LIST_CHANGES, viewId,
+                        new Object[]{uiChanges});
+            }
+        });
+    }
+}
@@ -0,0 +1,241 @@
+package com.droidkit.engine.list;
+
+import com.droidkit.engine.common.TransactionalStorage;
+import com.droidkit.engine.metrics.EngineMetrics;
+import com.droidkit.engine.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * StorageAdapter recording latency of every operation of wrapped adapter to EngineMetrics.
+ * Also provides optional storage operations, falling back to basic ones if wrapped adapter doesn't support them.
+ */
+class MeasuredStorageAdapter<V> implements StorageAdapter<V> {
+
+    private final StorageAdapter<V> storageAdapter;
+
+    private final DataAdapter<V> dataAdapter;
+
+    private final LatencyHistogram insertSingle;
+    private final LatencyHistogram insertOrReplaceSingle;
+    private final LatencyHistogram deleteSingle;
+    private final LatencyHistogram insertBatch;
+    private final LatencyHistogram insertOrReplaceBatch;
+    private final LatencyHistogram deleteBatch;
+    private final LatencyHistogram deleteAll;
+    private final LatencyHistogram runInTransaction;
+    private final LatencyHistogram loadListSlice;
+    private final LatencyHistogram loadRawListSlice;
+    private final LatencyHistogram loadListRange;
+    private final LatencyHistogram loadAll;
+    private final LatencyHistogram getById;
+
+    MeasuredStorageAdapter(StorageAdapter<V> storageAdapter, DataAdapter<V> dataAdapter, String prefix) {
+        this.storageAdapter = storageAdapter;
+        this.dataAdapter = dataAdapter;
+        insertSingle = EngineMetrics.histogram(prefix + ".insertSingle");
+        insertOrReplaceSingle = EngineMetrics.histogram(prefix + ".insertOrReplaceSingle");
+        deleteSingle = EngineMetrics.histogram(prefix + ".deleteSingle");
+        insertBatch = EngineMetrics.histogram(prefix + ".insertBatch");
+        insertOrReplaceBatch = EngineMetrics.histogram(prefix + ".insertOrReplaceBatch");
+        deleteBatch = EngineMetrics.histogram(prefix + ".deleteBatch");
+        deleteAll = EngineMetrics.histogram(prefix + ".deleteAll");
+        runInTransaction = EngineMetrics.histogram(prefix + ".runInTransaction");
+        loadListSlice = EngineMetrics.histogram(prefix + ".loadListSlice");
+        loadRawListSlice = EngineMetrics.histogram(prefix + ".loadRawListSlice");
+        loadListRange = EngineMetrics.histogram(prefix + ".loadListRange");
+        loadAll = EngineMetrics.histogram(prefix + ".loadAll");
+        getById = EngineMetrics.histogram(prefix + ".getById");
+    }
+
+    @Override
+    public void insertSingle(V item) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertSingle(item);
+        insertSingle.recordSince(start);
+    }
+
+    @Override
+    public void insertOrReplaceSingle(V item) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertOrReplaceSingle(item);
+        insertOrReplaceSingle.recordSince(start);
+    }
+
+    @Override
+    public void deleteSingle(long id) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.deleteSingle(id);
+        deleteSingle.recordSince(start);
+    }
+
+    @Override
+    public void insertBatch(ArrayList<V> items) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertBatch(items);
+        insertBatch.recordSince(start);
+    }
+
+    @Override
+    public void insertOrReplaceBatch(ArrayList<V> items) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.insertOrReplaceBatch(items);
+        insertOrReplaceBatch.recordSince(start);
+    }
+
+    @Override
+    public void deleteBatch(ArrayList<Long> ids) {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.deleteBatch(ids);
+        deleteBatch.recordSince(start);
+    }
+
+    @Override
+    public void deleteAll() {
+        final long start = EngineMetrics.startTime();
+        storageAdapter.deleteAll();
+        deleteAll.recordSince(start);
+    }
+
+    /**
+     * Run runnable in transaction of wrapped adapter, or just run it if adapter is not transactional
+     */
+    public void runInTransaction(Runnable runnable) {
+        final long start = EngineMetrics.startTime();
+        if (storageAdapter instanceof TransactionalStorage) {
+            ((TransactionalStorage) storageAdapter).runInTransaction(runnable);
+        } else {
+            runnable.run();
+        }
+        runInTransaction.recordSince(start);
+    }
+
+    @Override
+    public ArrayList<V> loadListSlice(int limit, int offset) {
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res = storageAdapter.loadListSlice(limit, offset);
+        loadListSlice.recordSince(start);
+        return res;
+    }
+
+    /**
+     * @return true if wrapped adapter supports keyset pagination
+     */
+    public boolean isKeysetSupported() {
+        return storageAdapter instanceof KeysetStorageAdapter;
+    }
+
+    /**
+     * Load slice of items following specified item, supported only if isKeysetSupported()
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> loadListSlice(int limit, long afterSortKey, long afterId) {
+        if (!isKeysetSupported()) {
+            throw new UnsupportedOperationException("Storage doesn't support keyset pagination");
+        }
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res = ((KeysetStorageAdapter<V>) storageAdapter).loadListSlice(limit, afterSortKey, afterId);
+        loadListSlice.recordSince(start);
+        return res;
+    }
+
+    /**
+     * @return true if wrapped adapter can load items without deserialization
+     */
+    public boolean isRawSupported() {
+        return storageAdapter instanceof RawStorageAdapter;
+    }
+
+    /**
+     * Load slice of serialized items by offset, supported only if isRawSupported()
+     */
+    public ArrayList<RawItem> loadRawListSlice(int limit, int offset) {
+        final long start = EngineMetrics.startTime();
+        final ArrayList<RawItem> res = raw().loadRawListSlice(limit, offset);
+        loadRawListSlice.recordSince(start);
+        return res;
+    }
+
+    /**
+     * Load slice of serialized items following specified item,
+     * supported only if isRawSupported() and isKeysetSupported()
+     */
+    public ArrayList<RawItem> loadRawListSlice(int limit, long afterSortKey, long afterId) {
+        if (!isKeysetSupported()) {
+            throw new UnsupportedOperationException("Storage doesn't support keyset pagination");
+        }
+        final long start = EngineMetrics.startTime();
+        final ArrayList<RawItem> res = raw().loadRawListSlice(limit, afterSortKey, afterId);
+        loadRawListSlice.recordSince(start);
+        return res;
+    }
+
+    private RawStorageAdapter raw() {
+        if (!isRawSupported()) {
+            throw new UnsupportedOperationException("Storage doesn't support loading of raw items");
+        }
+        return (RawStorageAdapter) storageAdapter;
+    }
+
+    /**
+     * Load all items with sort keys in [fromSortKey, toSortKey] ordered by sort key and id.
+     * If wrapped adapter is not a RangeStorageAdapter, range is filtered from loadAll()
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> loadListRange(long fromSortKey, long toSortKey) {
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res;
+        if (storageAdapter instanceof RangeStorageAdapter) {
+            res = ((RangeStorageAdapter<V>) storageAdapter).loadListRange(fromSortKey, toSortKey);
+        } else {
+            res = filterRange(storageAdapter.loadAll(), fromSortKey, toSortKey);
+        }
+        loadListRange.recordSince(start);
+        return res;
+    }
+
+    private ArrayList<V> filterRange(ArrayList<V> all, long fromSortKey, long toSortKey) {
+        final ArrayList<V> res = new ArrayList<V>();
+        if (all == null) {
+            return res;
+        }
+        for (V value : all) {
+            final long sortKey = dataAdapter.getSortKey(value);
+            if (sortKey >= fromSortKey && sortKey <= toSortKey) {
+                res.add(value);
+            }
+        }
+        Collections.sort(res, new Comparator<V>() {
+            @Override
+            public int compare(V a, V b) {
+                final long aKey = dataAdapter.getSortKey(a);
+                final long bKey = dataAdapter.getSortKey(b);
+                if (aKey != bKey) {
+                    return aKey < bKey ? -1 : 1;
+                }
+                final long aId = dataAdapter.getId(a);
+                final long bId = dataAdapter.getId(b);
+                return aId < bId ? -1 : (aId == bId ? 0 : 1);
+            }
+        });
+        return res;
+    }
+
+    @Override
+    public ArrayList<V> loadAll() {
+        final long start = EngineMetrics.startTime();
+        final ArrayList<V> res = storageAdapter.loadAll();
+        loadAll.recordSince(start);
+        return res;
+    }
+
+    @Override
+    public V getById(long id) {
+        final long start = EngineMetrics.startTime();
+        final V res = storageAdapter.getById(id);
+        getById.recordSince(start);
+        return res;
+    }
+}
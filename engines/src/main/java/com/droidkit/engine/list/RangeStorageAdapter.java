@@ -0,0 +1,15 @@
+package com.droidkit.engine.list;
+
+import java.util.ArrayList;
+
+/**
+ * Optional interface of list StorageAdapter loading items by sort key range.
+ * Ranges of other storages are filtered from loadAll().
+ */
+public interface RangeStorageAdapter<V> {
+
+    /**
+     * Load all items with sort keys in [fromSortKey, toSortKey] ordered by sort key
+     */
+    ArrayList<V> loadListRange(long fromSortKey, long toSortKey);
+}
@@ -0,0 +1,29 @@
+package com.droidkit.engine.list;
+
+/**
+ * Serialized list item as it is stored in database
+ */
+public class RawItem {
+
+    private final long id;
+    private final long sortKey;
+    private final byte[] bytes;
+
+    public RawItem(long id, long sortKey, byte[] bytes) {
+        this.id = id;
+        this.sortKey = sortKey;
+        this.bytes = bytes;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getSortKey() {
+        return sortKey;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
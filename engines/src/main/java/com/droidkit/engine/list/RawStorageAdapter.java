@@ -0,0 +1,21 @@
+package com.droidkit.engine.list;
+
+import java.util.ArrayList;
+
+/**
+ * Optional interface of list StorageAdapter loading items without deserialization,
+ * required for lazy deserialization in ListEngine.
+ * Keyset variant is used only if storage also implements {@link KeysetStorageAdapter}.
+ */
+public interface RawStorageAdapter {
+
+    /**
+     * The same as loadListSlice(int, int), but items are not deserialized
+     */
+    ArrayList<RawItem> loadRawListSlice(int limit, int offset);
+
+    /**
+     * The same as loadListSlice(int, long, long), but items are not deserialized
+     */
+    ArrayList<RawItem> loadRawListSlice(int limit, long afterSortKey, long afterId);
+}
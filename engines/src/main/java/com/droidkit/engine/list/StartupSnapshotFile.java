@@ -0,0 +1,132 @@
+package com.droidkit.engine.list;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * File with first serialized items of list, read at startup without touching database.
+ * Format: magic, version, count and then (id, sortKey, length, bytes) for every item.
+ */
+class StartupSnapshotFile {
+
+    private static final int MAGIC = 0x4C45534E;
+
+    private static final int VERSION = 1;
+
+    private StartupSnapshotFile() {
+
+    }
+
+    /**
+     * Read items from memory mapped file
+     *
+     * @return items or empty list if file doesn't exist or is broken
+     */
+    static ArrayList<RawItem> read(File file) {
+        final ArrayList<RawItem> res = new ArrayList<RawItem>();
+        if (!file.exists()) {
+            return res;
+        }
+
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            final FileChannel channel = stream.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return res;
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < 20) {
+                    res.clear();
+                    return res;
+                }
+                final long id = buffer.getLong();
+                final long sortKey = buffer.getLong();
+                final int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    res.clear();
+                    return res;
+                }
+                final byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                res.add(new RawItem(id, sortKey, bytes));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            res.clear();
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Write items to temporary file, sync it to disk and replace snapshot with it, so broken file is never read.
+     * Items without bytes are skipped.
+     */
+    static void write(File file, ArrayList<RawItem> items) {
+        final File tmp = new File(file.getPath() + ".tmp");
+        int count = 0;
+        for (RawItem item : items) {
+            if (item.getBytes() != null) {
+                count++;
+            }
+        }
+        DataOutputStream stream = null;
+        try {
+            final FileOutputStream fileStream = new FileOutputStream(tmp);
+            stream = new DataOutputStream(new BufferedOutputStream(fileStream));
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(count);
+            for (RawItem item : items) {
+                final byte[] bytes = item.getBytes();
+                if (bytes == null) {
+                    continue;
+                }
+                stream.writeLong(item.getId());
+                stream.writeLong(item.getSortKey());
+                stream.writeInt(bytes.length);
+                stream.write(bytes);
+            }
+            stream.flush();
+            // Data must be on disk before rename, otherwise renamed file can be empty after crash
+            fileStream.getFD().sync();
+            stream.close();
+            stream = null;
+            if (!tmp.renameTo(file)) {
+                // Rename doesn't replace existing file on some file systems
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    tmp.delete();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            tmp.delete();
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.droidkit.engine.list.log;
+
+import com.droidkit.engine._internal.log.SegmentLog;
+import com.droidkit.engine.common.TransactionalStorage;
+import com.droidkit.engine.list.DataAdapter;
+import com.droidkit.engine.list.KeysetStorageAdapter;
+import com.droidkit.engine.list.RangeStorageAdapter;
+import com.droidkit.engine.list.RawItem;
+import com.droidkit.engine.list.RawStorageAdapter;
+import com.droidkit.engine.list.StorageAdapter;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * StorageAdapter keeping items in memory mapped append-only log instead of SQLite.
+ * Every list needs its own directory.
+ */
+public class LogStorageAdapter<V> implements StorageAdapter<V>, KeysetStorageAdapter<V>,
+        RangeStorageAdapter<V>, RawStorageAdapter, TransactionalStorage {
+
+    private final SegmentLog log;
+
+    private final boolean ascSorting;
+
+    private final DataAdapter<V> dataAdapter;
+
+    public LogStorageAdapter(File directory,
+                             int segmentSize,
+                             boolean ascSorting,
+                             DataAdapter<V> dataAdapter) {
+        this.log = new SegmentLog(directory, segmentSize);
+        this.ascSorting = ascSorting;
+        this.dataAdapter = dataAdapter;
+    }
+
+    public LogStorageAdapter(File directory,
+                             boolean ascSorting,
+                             DataAdapter<V> dataAdapter) {
+        this(directory, SegmentLog.DEFAULT_SEGMENT_SIZE, ascSorting, dataAdapter);
+    }
+
+    public LogStorageAdapter(File directory,
+                             DataAdapter<V> dataAdapter) {
+        this(directory, SegmentLog.DEFAULT_SEGMENT_SIZE, false, dataAdapter);
+    }
+
+    @Override
+    public void insertSingle(V item) {
+        insert(item);
+    }
+
+    @Override
+    public void insertOrReplaceSingle(V item) {
+        put(item);
+    }
+
+    @Override
+    public void deleteSingle(long id) {
+        log.remove(id);
+    }
+
+    @Override
+    public void insertBatch(final ArrayList<V> items) {
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (V item : items) {
+                    insert(item);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void insertOrReplaceBatch(final ArrayList<V> items) {
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (V item : items) {
+                    put(item);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void deleteBatch(final ArrayList<Long> ids) {
+        log.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (Long id : ids) {
+                    log.remove(id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void deleteAll() {
+        log.clear();
+    }
+
+    @Override
+    public void runInTransaction(Runnable runnable) {
+        log.runInTransaction(runnable);
+    }
+
+    @Override
+    public ArrayList<V> loadListSlice(int limit, int offset) {
+        return deserialize(log.slice(offset, limit, ascSorting));
+    }
+
+    @Override
+    public ArrayList<V> loadListSlice(int limit, long afterSortKey, long afterId) {
+        return deserialize(log.sliceAfter(afterSortKey, afterId, limit, ascSorting));
+    }
+
+    @Override
+    public ArrayList<RawItem> loadRawListSlice(int limit, int offset) {
+        return toRaw(log.slice(offset, limit, ascSorting));
+    }
+
+    @Override
+    public ArrayList<RawItem> loadRawListSlice(int limit, long afterSortKey, long afterId) {
+        return toRaw(log.sliceAfter(afterSortKey, afterId, limit, ascSorting));
+    }
+
+    @Override
+    public ArrayList<V> loadListRange(long fromSortKey, long toSortKey) {
+        return deserialize(log.range(fromSortKey, toSortKey));
+    }
+
+    @Override
+    public ArrayList<V> loadAll() {
+        return deserialize(log.slice(0, -1, ascSorting));
+    }
+
+    @Override
+    public V getById(long id) {
+        final SegmentLog.Item item = log.get(id);
+        return item == null ? null : dataAdapter.deserialize(item.getBytes());
+    }
+
+    private void insert(V item) {
+        final long id = dataAdapter.getId(item);
+        if (log.contains(id)) {
+            throw new IllegalStateException("Item with id " + id + " already exists");
+        }
+        log.put(id, dataAdapter.getSortKey(item), dataAdapter.serialize(item));
+    }
+
+    private void put(V item) {
+        log.put(dataAdapter.getId(item), dataAdapter.getSortKey(item), dataAdapter.serialize(item));
+    }
+
+    private ArrayList<V> deserialize(ArrayList<SegmentLog.Item> items) {
+        final ArrayList<V> res = new ArrayList<V>(items.size());
+        for (SegmentLog.Item item : items) {
+            final V value = dataAdapter.deserialize(item.getBytes());
+            if (value != null) {
+                res.add(value);
+            }
+        }
+        return res;
+    }
+
+    private static ArrayList<RawItem> toRaw(ArrayList<SegmentLog.Item> items) {
+        final ArrayList<RawItem> res = new ArrayList<RawItem>(items.size());
+        for (SegmentLog.Item item : items) {
+            res.add(new RawItem(item.getId(), item.getSortKey(), item.getBytes()));
+        }
+        return res;
+    }
+}
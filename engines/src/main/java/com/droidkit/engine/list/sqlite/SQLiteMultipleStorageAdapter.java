@@ -2,13 +2,20 @@ package com.droidkit.engine.list.sqlite;
 
 import android.database.sqlite.SQLiteDatabase;
 
+import com.droidkit.engine._internal.TransactionScope;
+import com.droidkit.engine.common.TransactionalStorage;
 import com.droidkit.engine.list.DataAdapter;
+import com.droidkit.engine.list.KeysetStorageAdapter;
+import com.droidkit.engine.list.RangeStorageAdapter;
+import com.droidkit.engine.list.RawItem;
+import com.droidkit.engine.list.RawStorageAdapter;
 import com.droidkit.engine.list.StorageAdapter;
 import com.droidkit.engine.list.sqlite.internal.ListEngineDao;
 
 import java.util.ArrayList;
 
-public class SQLiteMultipleStorageAdapter<V> implements StorageAdapter {
+public class SQLiteMultipleStorageAdapter<V> implements StorageAdapter, KeysetStorageAdapter,
+        RangeStorageAdapter, RawStorageAdapter, TransactionalStorage, TransactionScope {
 
     private final ListEngineDao dao;
 
@@ -20,6 +27,15 @@ public class SQLiteMultipleStorageAdapter<V> implements StorageAdapter {
         dao = new ListEngineDao(listEngineName, listEngineId, database, ascSorting, classConnector);
     }
 
+    /**
+     * Deserialize loaded items with several threads
+     *
+     * @param parallelism maximum number of chunks deserialized at the same time, 1 to disable
+     */
+    public void setDeserializeParallelism(int parallelism) {
+        dao.setDeserializeParallelism(parallelism);
+    }
+
     @Override
     public void insertSingle(Object item) {
         dao.insert(item);
@@ -50,6 +66,11 @@ public class SQLiteMultipleStorageAdapter<V> implements StorageAdapter {
         dao.deleteAll();
     }
 
+    @Override
+    public void runInTransaction(Runnable runnable) {
+        dao.runInTx(runnable);
+    }
+
     @Override
     public void deleteBatch(ArrayList ids) {
         dao.deleteInTx(ids);
@@ -60,6 +81,26 @@ public class SQLiteMultipleStorageAdapter<V> implements StorageAdapter {
         return dao.getNextSlice(limit, offset);
     }
 
+    @Override
+    public ArrayList<V> loadListSlice(int limit, long afterSortKey, long afterId) {
+        return dao.getNextSlice(limit, afterSortKey, afterId);
+    }
+
+    @Override
+    public ArrayList<RawItem> loadRawListSlice(int limit, int offset) {
+        return dao.getNextRawSlice(limit, offset);
+    }
+
+    @Override
+    public ArrayList<RawItem> loadRawListSlice(int limit, long afterSortKey, long afterId) {
+        return dao.getNextRawSlice(limit, afterSortKey, afterId);
+    }
+
+    @Override
+    public ArrayList<V> loadListRange(long fromSortKey, long toSortKey) {
+        return dao.getRange(fromSortKey, toSortKey);
+    }
+
     @Override
     public ArrayList loadAll() {
         return dao.getAll();
@@ -69,4 +110,12 @@ public class SQLiteMultipleStorageAdapter<V> implements StorageAdapter {
     public V getById(long id) {
         return (V) dao.getById(id);
     }
+
+    /**
+     * All adapters of one database share transactions
+     */
+    @Override
+    public Object getTransactionScope() {
+        return dao.db;
+    }
 }
@@ -5,6 +5,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 
 import com.droidkit.engine.list.DataAdapter;
+import com.droidkit.engine.list.RawItem;
 import com.droidkit.engine._internal.sqlite.AbstractDao;
 
 import java.util.ArrayList;
@@ -55,6 +56,10 @@ public class ListEngineDao<V> extends AbstractDao<V> {
             db.execSQL("CREATE INDEX " + constraint + "IDX_LIST_ENGINE_ITEM_ID ON '" + tableName + "'" +
                     " (ID);");
         }
+
+        // Index for keyset slices, created for already existing tables too
+        db.execSQL("CREATE INDEX IF NOT EXISTS 'IDX_" + tableName + "_SORT_KEY_ID' ON '" + tableName + "'" +
+                " (LIST_ID, SORT_KEY, ID);");
     }
 
     @Override
@@ -84,6 +89,18 @@ public class ListEngineDao<V> extends AbstractDao<V> {
         return (V) binarySerializator.deserialize(cursor.isNull(3) ? null : cursor.getBlob(3));
     }
 
+    @Override
+    protected int getBytesColumn() {
+        return 3;
+    }
+
+    /**
+     * Read item without deserialization
+     */
+    public RawItem readRaw(Cursor cursor) {
+        return new RawItem(cursor.getLong(1), cursor.getLong(2), cursor.isNull(3) ? null : cursor.getBlob(3));
+    }
+
     @Override
     public void deleteByKeyInsideSynchronized(long id, SQLiteStatement stmt) {
         stmt.clearBindings();
@@ -95,33 +112,117 @@ public class ListEngineDao<V> extends AbstractDao<V> {
     @Override
     public ArrayList<V> getAll() {
         final String stmt = statements.getAllStatement();
-        return loadAllAndCloseCursor(db.rawQuery(stmt,
+        return queryAll(stmt,
                 new String[]{
                         String.valueOf(listEngineId),
                 }
-        ));
+        );
     }
 
     @Override
     public V getById(long id) {
         final String stmt = statements.getGetByIdStatement();
-        return loadSingleAndCloseCursor(db.rawQuery(stmt,
+        return querySingle(stmt,
                 new String[]{
                         String.valueOf(listEngineId),
                         String.valueOf(id)
                 }
-        ));
+        );
     }
 
     public ArrayList<V> getNextSlice(int limit, int offset) {
         final String stmt = ((ListEngineTableStatements) statements).getNextSliceStatement(ascSorting);
-        return loadAllAndCloseCursor(db.rawQuery(stmt,
+        return queryAll(stmt,
+                new String[]{
+                        String.valueOf(listEngineId),
+                        String.valueOf(limit),
+                        String.valueOf(offset)
+                }
+        );
+    }
+
+    /**
+     * The same as getNextSlice(int, int), but without deserialization
+     */
+    public ArrayList<RawItem> getNextRawSlice(int limit, int offset) {
+        final String stmt = ((ListEngineTableStatements) statements).getNextSliceStatement(ascSorting);
+        return queryRaw(stmt,
                 new String[]{
                         String.valueOf(listEngineId),
                         String.valueOf(limit),
                         String.valueOf(offset)
                 }
-        ));
+        );
+    }
+
+    /**
+     * The same as getNextSlice(int, long, long), but without deserialization
+     */
+    public ArrayList<RawItem> getNextRawSlice(int limit, long afterSortKey, long afterId) {
+        final String stmt = ((ListEngineTableStatements) statements).getSliceAfterStatement(ascSorting);
+        return queryRaw(stmt,
+                new String[]{
+                        String.valueOf(listEngineId),
+                        String.valueOf(afterSortKey),
+                        String.valueOf(afterSortKey),
+                        String.valueOf(afterId),
+                        String.valueOf(limit)
+                }
+        );
+    }
+
+    private ArrayList<RawItem> queryRaw(String sql, String[] args) {
+        final SQLiteDatabase readDb = acquireReadDb();
+        try {
+            return loadRawAndCloseCursor(readDb.rawQuery(sql, args));
+        } finally {
+            releaseReadDb(readDb);
+        }
+    }
+
+    private ArrayList<RawItem> loadRawAndCloseCursor(Cursor cursor) {
+        try {
+            ArrayList<RawItem> list = new ArrayList<RawItem>(cursor.getCount());
+            Cursor fastCursor = toFastCursor(cursor);
+            if (fastCursor.moveToFirst()) {
+                do {
+                    list.add(readRaw(fastCursor));
+                } while (fastCursor.moveToNext());
+            }
+            return list;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Load items with sort keys in [fromSortKey, toSortKey] in ascending order
+     */
+    public ArrayList<V> getRange(long fromSortKey, long toSortKey) {
+        final String stmt = ((ListEngineTableStatements) statements).getRangeStatement();
+        return queryAll(stmt,
+                new String[]{
+                        String.valueOf(listEngineId),
+                        String.valueOf(fromSortKey),
+                        String.valueOf(toSortKey)
+                }
+        );
+    }
+
+    /**
+     * Load slice of items following (sortKey, id) item in sorting order
+     */
+    public ArrayList<V> getNextSlice(int limit, long afterSortKey, long afterId) {
+        final String stmt = ((ListEngineTableStatements) statements).getSliceAfterStatement(ascSorting);
+        return queryAll(stmt,
+                new String[]{
+                        String.valueOf(listEngineId),
+                        String.valueOf(afterSortKey),
+                        String.valueOf(afterSortKey),
+                        String.valueOf(afterId),
+                        String.valueOf(limit)
+                }
+        );
     }
 
 }
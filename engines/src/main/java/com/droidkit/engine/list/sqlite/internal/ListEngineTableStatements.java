@@ -17,6 +17,9 @@ public class ListEngineTableStatements implements SqlStatements {
 
     private String nextSliceStatementAsc;
     private String nextSliceStatementDesc;
+    private String sliceAfterStatementAsc;
+    private String sliceAfterStatementDesc;
+    private String rangeStatement;
     private String getByIdStatement;
     private String allStatement;
 
@@ -58,7 +61,8 @@ public class ListEngineTableStatements implements SqlStatements {
         }
 
         if (statement == null) {
-            statement = String.format("SELECT * FROM '%s' WHERE LIST_ID=? ORDER BY SORT_KEY %s LIMIT ? OFFSET ?", tablename, (asc ? "ASC" : "DESC"));
+            statement = String.format("SELECT * FROM '%s' WHERE LIST_ID=? ORDER BY SORT_KEY %s, ID %s LIMIT ? OFFSET ?",
+                    tablename, (asc ? "ASC" : "DESC"), (asc ? "ASC" : "DESC"));
             if(asc) {
                 nextSliceStatementAsc = statement;
             } else {
@@ -68,6 +72,40 @@ public class ListEngineTableStatements implements SqlStatements {
         return statement;
     }
 
+    /**
+     * Keyset slice: items after (SORT_KEY, ID) pair in sorting order, so SQLite seeks
+     * by index instead of skipping all previous rows
+     */
+    public String getSliceAfterStatement(boolean asc) {
+        String statement;
+        if (asc) {
+            statement = sliceAfterStatementAsc;
+        } else {
+            statement = sliceAfterStatementDesc;
+        }
+
+        if (statement == null) {
+            if (asc) {
+                statement = String.format("SELECT * FROM '%s' WHERE LIST_ID=? AND SORT_KEY>=? AND (SORT_KEY>? OR ID>?) " +
+                        "ORDER BY SORT_KEY ASC, ID ASC LIMIT ?", tablename);
+                sliceAfterStatementAsc = statement;
+            } else {
+                statement = String.format("SELECT * FROM '%s' WHERE LIST_ID=? AND SORT_KEY<=? AND (SORT_KEY<? OR ID<?) " +
+                        "ORDER BY SORT_KEY DESC, ID DESC LIMIT ?", tablename);
+                sliceAfterStatementDesc = statement;
+            }
+        }
+        return statement;
+    }
+
+    public String getRangeStatement() {
+        if (rangeStatement == null) {
+            rangeStatement = String.format("SELECT * FROM '%s' WHERE LIST_ID=? AND SORT_KEY>=? AND SORT_KEY<=? " +
+                    "ORDER BY SORT_KEY ASC, ID ASC", tablename);
+        }
+        return rangeStatement;
+    }
+
     public String getGetByIdStatement() {
         if(getByIdStatement == null) {
             getByIdStatement = String.format("SELECT * FROM '%s' WHERE LIST_ID=? AND ID=?", tablename);
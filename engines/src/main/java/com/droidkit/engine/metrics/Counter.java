@@ -0,0 +1,41 @@
+package com.droidkit.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter of events, counts only while metrics are enabled
+ */
+public final class Counter {
+
+    private final String name;
+
+    private final AtomicLong value = new AtomicLong();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        if (EngineMetrics.isEnabled()) {
+            value.incrementAndGet();
+        }
+    }
+
+    public void add(long delta) {
+        if (EngineMetrics.isEnabled()) {
+            value.addAndGet(delta);
+        }
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    void reset() {
+        value.set(0);
+    }
+}
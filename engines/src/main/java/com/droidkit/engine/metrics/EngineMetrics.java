@@ -0,0 +1,169 @@
+package com.droidkit.engine.metrics;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of metrics of all engines.
+ * <p>
+ * Metrics are disabled by default: every measured place costs one volatile read then,
+ * durations are not measured and counters are not touched.
+ * Names of engine metrics are prefixed with engine name, e.g. "list_1.db.loadListSlice".
+ */
+public final class EngineMetrics {
+
+    private static volatile boolean enabled = false;
+
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    private static final ConcurrentHashMap<String, Counter> counters =
+            new ConcurrentHashMap<String, Counter>();
+
+    private static final ConcurrentHashMap<String, Gauge> gauges =
+            new ConcurrentHashMap<String, Gauge>();
+
+    private static Timer reportTimer;
+
+    private EngineMetrics() {
+
+    }
+
+    public static void setEnabled(boolean enabled) {
+        EngineMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start of measured operation
+     *
+     * @return current System.nanoTime() or 0 if metrics are disabled
+     */
+    public static long startTime() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return histogram with name, created on first call
+     */
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram res = histograms.get(name);
+        if (res == null) {
+            final LatencyHistogram created = new LatencyHistogram(name);
+            res = histograms.putIfAbsent(name, created);
+            if (res == null) {
+                res = created;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return counter with name, created on first call
+     */
+    public static Counter counter(String name) {
+        Counter res = counters.get(name);
+        if (res == null) {
+            final Counter created = new Counter(name);
+            res = counters.putIfAbsent(name, created);
+            if (res == null) {
+                res = created;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Register gauge polled on every snapshot, replaces gauge with the same name
+     */
+    public static void registerGauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public static void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    public static void unregisterHistogram(String name) {
+        histograms.remove(name);
+    }
+
+    /**
+     * Remove all histograms, counters and gauges with names starting with prefix,
+     * e.g. "list_1." when engine is disposed
+     */
+    public static void unregisterAll(String prefix) {
+        removeByPrefix(histograms, prefix);
+        removeByPrefix(counters, prefix);
+        removeByPrefix(gauges, prefix);
+    }
+
+    private static void removeByPrefix(ConcurrentHashMap<String, ?> map, String prefix) {
+        for (String name : map.keySet()) {
+            if (name.startsWith(prefix)) {
+                map.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Reset all histograms and counters
+     */
+    public static void reset() {
+        for (LatencyHistogram h : histograms.values()) {
+            h.reset();
+        }
+        for (Counter c : counters.values()) {
+            c.reset();
+        }
+    }
+
+    public static MetricsSnapshot snapshot() {
+        final TreeMap<String, LatencyHistogram.Snapshot> h = new TreeMap<String, LatencyHistogram.Snapshot>();
+        for (LatencyHistogram histogram : histograms.values()) {
+            h.put(histogram.getName(), histogram.snapshot());
+        }
+        final TreeMap<String, Long> c = new TreeMap<String, Long>();
+        for (Counter counter : counters.values()) {
+            c.put(counter.getName(), counter.get());
+        }
+        final TreeMap<String, Long> g = new TreeMap<String, Long>();
+        for (Map.Entry<String, Gauge> e : gauges.entrySet()) {
+            g.put(e.getKey(), e.getValue().value());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), h, c, g);
+    }
+
+    /**
+     * Enable metrics and deliver snapshot to listener every intervalMs from background thread.
+     * Previous reporting is stopped.
+     */
+    public static synchronized void startReporting(long intervalMs, final MetricsListener listener) {
+        stopReporting();
+        setEnabled(true);
+        reportTimer = new Timer("EngineMetrics", true);
+        reportTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                listener.onMetrics(snapshot());
+            }
+        }, intervalMs, intervalMs);
+    }
+
+    /**
+     * Stop reporting and disable metrics
+     */
+    public static synchronized void stopReporting() {
+        setEnabled(false);
+        if (reportTimer != null) {
+            reportTimer.cancel();
+            reportTimer = null;
+        }
+    }
+}
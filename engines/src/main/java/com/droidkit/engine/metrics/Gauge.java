@@ -0,0 +1,8 @@
+package com.droidkit.engine.metrics;
+
+/**
+ * Current value of something, polled only when snapshot of metrics is taken
+ */
+public interface Gauge {
+    long value();
+}
@@ -0,0 +1,146 @@
+package com.droidkit.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with power of two buckets:
+ * bucket i contains durations in [2^(i-1), 2^i) nanoseconds.
+ */
+public final class LatencyHistogram {
+
+    static final int BUCKETS = 64;
+
+    private final String name;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record time passed since start
+     *
+     * @param start result of EngineMetrics.startTime(), nothing is recorded if it is 0
+     */
+    public void recordSince(long start) {
+        if (start != 0) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while ((max = maxNanos.get()) < nanos) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    public Snapshot snapshot() {
+        final long[] res = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            res[i] = buckets.get(i);
+        }
+        return new Snapshot(name, res, count.get(), totalNanos.get(), maxNanos.get());
+    }
+
+    /**
+     * Immutable state of histogram
+     */
+    public static final class Snapshot {
+
+        private final String name;
+        private final long[] buckets;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(String name, long[] buckets, long count, long totalNanos, long maxNanos) {
+            this.name = name;
+            this.buckets = buckets;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * @param percentile value in [0, 100]
+         * @return upper bound of bucket containing percentile, but not more than max
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            for (long b : buckets) {
+                total += b;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && buckets[i] > 0) {
+                    return i == 0 ? 0 : Math.min((1L << i) - 1, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{count=" + count +
+                    ", mean=" + getMeanNanos() / 1000 + "us" +
+                    ", p50=" + getPercentileNanos(50) / 1000 + "us" +
+                    ", p99=" + getPercentileNanos(99) / 1000 + "us" +
+                    ", max=" + maxNanos / 1000 + "us}";
+        }
+    }
+}
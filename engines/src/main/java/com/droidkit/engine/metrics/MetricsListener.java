@@ -0,0 +1,8 @@
+package com.droidkit.engine.metrics;
+
+public interface MetricsListener {
+    /**
+     * Called periodically from background thread of metrics reporter
+     */
+    void onMetrics(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,87 @@
+package com.droidkit.engine.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Values of all metrics at the moment of snapshot, sorted by name
+ */
+public final class MetricsSnapshot {
+
+    private final long time;
+
+    private final TreeMap<String, LatencyHistogram.Snapshot> histograms;
+
+    private final TreeMap<String, Long> counters;
+
+    private final TreeMap<String, Long> gauges;
+
+    MetricsSnapshot(long time,
+                    TreeMap<String, LatencyHistogram.Snapshot> histograms,
+                    TreeMap<String, Long> counters,
+                    TreeMap<String, Long> gauges) {
+        this.time = time;
+        this.histograms = histograms;
+        this.counters = counters;
+        this.gauges = gauges;
+    }
+
+    /**
+     * @return System.currentTimeMillis() of snapshot
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * @return histogram with name or null
+     */
+    public LatencyHistogram.Snapshot getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * @return value of counter with name or 0
+     */
+    public long getCounter(String name) {
+        final Long res = counters.get(name);
+        return res == null ? 0 : res;
+    }
+
+    /**
+     * @return value of gauge with name or 0
+     */
+    public long getGauge(String name) {
+        final Long res = gauges.get(name);
+        return res == null ? 0 : res;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram.Snapshot h : histograms.values()) {
+            if (h.getCount() > 0) {
+                sb.append(h).append('\n');
+            }
+        }
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> e : gauges.entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.droidkit.engine.platform;
+
+/**
+ * Thread-safe in-memory cache with limited number of entries, least recently used entries are evicted first
+ */
+public interface Cache<K, V> {
+
+    /**
+     * @return cached value or null
+     */
+    V get(K key);
+
+    /**
+     * @return previous value or null
+     */
+    V put(K key, V value);
+
+    /**
+     * @return removed value or null
+     */
+    V remove(K key);
+
+    void evictAll();
+}
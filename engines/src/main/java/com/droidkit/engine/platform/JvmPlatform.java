@@ -0,0 +1,95 @@
+package com.droidkit.engine.platform;
+
+import com.droidkit.actors.ActorSystem;
+import com.droidkit.actors.mailbox.AbsActorDispatcher;
+import com.droidkit.actors.mailbox.ActorDispatcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Platform for plain JVM without ui: main thread is a single daemon thread of engines.
+ * Ui actors work in their own single-thread dispatcher.
+ */
+public class JvmPlatform extends Platform {
+
+    private volatile Thread mainThread;
+
+    private final ExecutorService mainExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "engines-main");
+            thread.setDaemon(true);
+            mainThread = thread;
+            return thread;
+        }
+    });
+
+    @Override
+    public boolean isMainThread() {
+        return Thread.currentThread() == mainThread;
+    }
+
+    @Override
+    public void postToMainThread(Runnable runnable) {
+        mainExecutor.execute(runnable);
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return System.nanoTime() / 1000000;
+    }
+
+    @Override
+    public <K, V> Cache<K, V> createCache(int maxSize) {
+        return new LruMapCache<K, V>(maxSize);
+    }
+
+    @Override
+    public AbsActorDispatcher createMainThreadDispatcher(ActorSystem system) {
+        return new ActorDispatcher(system, 1);
+    }
+
+    /**
+     * Cache based on LinkedHashMap in access order
+     */
+    private static class LruMapCache<K, V> implements Cache<K, V> {
+
+        private final LinkedHashMap<K, V> map;
+
+        private LruMapCache(final int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize <= 0");
+            }
+            this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        public synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized V put(K key, V value) {
+            return map.put(key, value);
+        }
+
+        @Override
+        public synchronized V remove(K key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public synchronized void evictAll() {
+            map.clear();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.droidkit.engine.platform;
+
+import com.droidkit.actors.ActorSystem;
+import com.droidkit.actors.mailbox.AbsActorDispatcher;
+
+/**
+ * Everything engines need from runtime: main thread, clock and caches.
+ * AndroidPlatform is used when android.os.Looper is available, JvmPlatform otherwise.
+ */
+public abstract class Platform {
+
+    private static final String ANDROID_PLATFORM = "com.droidkit.engine.platform.android.AndroidPlatform";
+
+    private static volatile Platform instance;
+
+    /**
+     * @return current platform, detected on first call
+     */
+    public static Platform get() {
+        if (instance == null) {
+            synchronized (Platform.class) {
+                if (instance == null) {
+                    instance = detect();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Replace platform, should be called before first use of engines
+     */
+    public static void set(Platform platform) {
+        synchronized (Platform.class) {
+            instance = platform;
+        }
+    }
+
+    private static Platform detect() {
+        try {
+            Class.forName("android.os.Looper");
+            // Loaded by name, so core classes never reference android classes
+            return (Platform) Class.forName(ANDROID_PLATFORM).newInstance();
+        } catch (ClassNotFoundException e) {
+            return new JvmPlatform();
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return true if current thread is main (ui) thread
+     */
+    public abstract boolean isMainThread();
+
+    /**
+     * Run runnable in main thread
+     */
+    public abstract void postToMainThread(Runnable runnable);
+
+    /**
+     * @return milliseconds of monotonic clock
+     */
+    public abstract long uptimeMillis();
+
+    public abstract <K, V> Cache<K, V> createCache(int maxSize);
+
+    /**
+     * @return dispatcher running actors in main thread
+     */
+    public abstract AbsActorDispatcher createMainThreadDispatcher(ActorSystem system);
+}
@@ -0,0 +1,71 @@
+package com.droidkit.engine.platform.android;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.util.LruCache;
+
+import com.droidkit.actors.ActorSystem;
+import com.droidkit.actors.android.UiActorDispatcher;
+import com.droidkit.actors.mailbox.AbsActorDispatcher;
+import com.droidkit.engine.platform.Cache;
+import com.droidkit.engine.platform.Platform;
+
+public class AndroidPlatform extends Platform {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public boolean isMainThread() {
+        return Looper.getMainLooper().getThread() == Thread.currentThread();
+    }
+
+    @Override
+    public void postToMainThread(Runnable runnable) {
+        handler.post(runnable);
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public <K, V> Cache<K, V> createCache(int maxSize) {
+        return new LruCacheAdapter<K, V>(maxSize);
+    }
+
+    @Override
+    public AbsActorDispatcher createMainThreadDispatcher(ActorSystem system) {
+        return new UiActorDispatcher(system);
+    }
+
+    private static class LruCacheAdapter<K, V> implements Cache<K, V> {
+
+        private final LruCache<K, V> cache;
+
+        private LruCacheAdapter(int maxSize) {
+            this.cache = new LruCache<K, V>(maxSize);
+        }
+
+        @Override
+        public V get(K key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return cache.put(key, value);
+        }
+
+        @Override
+        public V remove(K key) {
+            return cache.remove(key);
+        }
+
+        @Override
+        public void evictAll() {
+            cache.evictAll();
+        }
+    }
+}